@@ -0,0 +1,80 @@
+package log;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Замеры кольцевого буфера логов: одиночные операции и конкуренция писателей с читателем.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircularLogBufferBenchmark
+{
+    @Param({"5", "1000"})
+    private int capacity;
+
+    private CircularLogBuffer<LogEntry> buffer;
+    private final LogEntry entry = new LogEntry(LogLevel.Debug, "benchmark");
+
+    @Setup
+    public void setUp()
+    {
+        buffer = new CircularLogBuffer<>(capacity);
+        for (int i = 0; i < capacity; i++)
+        {
+            buffer.append(entry);
+        }
+    }
+
+    @Benchmark
+    public void append()
+    {
+        buffer.append(entry);
+    }
+
+    @Benchmark
+    public Iterable<LogEntry> range()
+    {
+        return buffer.range(0, capacity / 2 + 1);
+    }
+
+    @Benchmark
+    public List<LogEntry> all()
+    {
+        return buffer.all();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void contendedAppend()
+    {
+        buffer.append(entry);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public List<LogEntry> contendedAll()
+    {
+        return buffer.all();
+    }
+}
@@ -0,0 +1,58 @@
+package log;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Замеры добавления записи в источник логов с разным числом слушателей.
+ * Слушатели только отмечают вызов, поэтому замер показывает стоимость самой рассылки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogWindowSourceBenchmark
+{
+    @Param({"0", "1", "8"})
+    private int listeners;
+
+    private LogWindowSource source;
+
+    @Setup
+    public void setUp(Blackhole blackhole)
+    {
+        source = new LogWindowSource(5);
+        for (int i = 0; i < listeners; i++)
+        {
+            source.registerListener(() -> blackhole.consume(source));
+        }
+    }
+
+    @Benchmark
+    public void append()
+    {
+        source.append(LogLevel.Debug, "benchmark");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contendedAppend()
+    {
+        source.append(LogLevel.Debug, "benchmark");
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Сравнивает траектории, полученные с {@link MathBackend#EXACT} и {@link MathBackend#FAST}.
+ * <p>
+ * Два одинаковых парка шагаются параллельно, и через заданные промежутки печатается наибольшее
+ * и среднее расхождение положений роботов. Запуск:
+ * {@code java -cp target/benchmarks.jar model.MathBackendDeviation [robots] [ticks]}.
+ */
+public final class MathBackendDeviation
+{
+    private static final double DELTA_TIME = 5;
+    private static final double BOUNDS = 1000;
+
+    private MathBackendDeviation()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        final int robots = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        final RobotFleet exact = new RobotFleet(robots);
+        final Random random = new Random(42);
+        for (int i = 0; i < robots; i++)
+        {
+            final int slot = exact.addRobot(random.nextDouble() * BOUNDS, random.nextDouble() * BOUNDS,
+                    random.nextDouble() * 2 * Math.PI);
+            exact.setTarget(slot, random.nextDouble() * BOUNDS, random.nextDouble() * BOUNDS);
+        }
+        final RobotFleet fast = exact.copy();
+        fast.setMathBackend(MathBackend.FAST);
+
+        for (int tick = 1; tick <= ticks; tick++)
+        {
+            exact.step(DELTA_TIME, BOUNDS, BOUNDS);
+            fast.step(DELTA_TIME, BOUNDS, BOUNDS);
+            if (tick % (ticks / 10) == 0 || tick == ticks)
+            {
+                report(tick, exact, fast);
+            }
+        }
+    }
+
+    /**
+     * Печатает расхождение положений двух парков.
+     */
+    private static void report(int tick, RobotFleet exact, RobotFleet fast)
+    {
+        double max = 0;
+        double sum = 0;
+        int diverged = 0;
+        for (int i = 0; i < exact.size(); i++)
+        {
+            final double distance = Math.hypot(exact.getX(i) - fast.getX(i), exact.getY(i) - fast.getY(i));
+            max = Math.max(max, distance);
+            sum += distance;
+            if (distance > RobotFleet.TARGET_CLOSE_ENOUGH)
+            {
+                diverged++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "tick=%d max=%.6f mean=%.6f diverged(>%.0f)=%d/%d%n",
+                tick, max, sum / exact.size(), RobotFleet.TARGET_CLOSE_ENOUGH, diverged, exact.size());
+    }
+}
@@ -0,0 +1,105 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Замеры шага симуляции для парков разного размера.
+ * Перед каждой итерацией парк пересоздается с одинаковыми случайными позициями. Движется заданная доля роботов
+ * ({@code movingPercent}): их цели лежат так далеко, что за итерацию роботы до них не доходят, а цели остальных
+ * совпадают с их позициями, и после первого шага они покидают активное множество парка. При доле 100 замеряется
+ * шаг всего парка, при меньшей — шаг, стоимость которого должна зависеть только от числа движущихся роботов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotsLogicBenchmark
+{
+    private static final double FAR = 1e9;
+
+    @Param({"1", "1000", "100000"})
+    private int robots;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"exact", "fast"})
+    private String math;
+
+    @Param({"100", "1"})
+    private int movingPercent;
+
+    private RobotsLogic logic;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        final RobotFleet fleet = new RobotFleet(robots);
+        fleet.setMathBackend("fast".equals(math) ? MathBackend.FAST : MathBackend.EXACT);
+        final Random random = new Random(42);
+        for (int i = 0; i < robots; i++)
+        {
+            final int slot = fleet.addRobot(random.nextDouble() * 1000, random.nextDouble() * 1000,
+                    random.nextDouble() * 2 * Math.PI);
+            if (i % 100 < movingPercent)
+            {
+                // Все цели дальше FAR, поэтому ни одна не окажется рядом с начальной позицией робота
+                fleet.setTarget(slot, FAR + random.nextDouble() * 1000, FAR + random.nextDouble() * 1000);
+            } else
+            {
+                fleet.setTarget(slot, fleet.getX(slot), fleet.getY(slot));
+            }
+        }
+        logic = new RobotsLogic(fleet);
+        logic.setWindowBounds(1000, 1000);
+        logic.setParallelism(parallelism);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown()
+    {
+        // Планировщик не запускался, поэтому остановка только освобождает пул параллельного шага
+        logic.stopTimer();
+    }
+
+    @Benchmark
+    public RobotFleet moveRobots()
+    {
+        logic.moveRobots();
+        return logic.getFleet();
+    }
+
+    /**
+     * Полный шаг, как его выполняет планировщик: шаг парка, столкновения и публикация кадра.
+     */
+    @Benchmark
+    public RobotFleet tick()
+    {
+        logic.tick();
+        return logic.getFleet();
+    }
+
+    @Benchmark
+    public RobotFleet moveRobot()
+    {
+        logic.moveRobot();
+        return logic.getFleet();
+    }
+}
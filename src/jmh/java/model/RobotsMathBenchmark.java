@@ -0,0 +1,89 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Замеры тригонометрии, вызываемой на каждом шаге робота, для точного и приближенного наборов функций.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotsMathBenchmark
+{
+    private static final int POINTS = 1024;
+
+    private final double[] x = new double[POINTS];
+    private final double[] y = new double[POINTS];
+    private final double[] angles = new double[POINTS];
+
+    @Param({"exact", "fast"})
+    private String backend;
+
+    private MathBackend math;
+
+    @Setup
+    public void setUp()
+    {
+        math = "fast".equals(backend) ? MathBackend.FAST : MathBackend.EXACT;
+        final Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++)
+        {
+            x[i] = random.nextDouble() * 1000;
+            y[i] = random.nextDouble() * 1000;
+            angles[i] = (random.nextDouble() - 0.5) * 8 * Math.PI;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double angleTo()
+    {
+        double sum = 0;
+        for (int i = 0; i < POINTS; i++)
+        {
+            sum += RobotsMath.angleTo(math, x[i], y[i], y[i], x[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double asNormalizedRadians()
+    {
+        double sum = 0;
+        for (int i = 0; i < POINTS; i++)
+        {
+            sum += RobotsMath.asNormalizedRadians(angles[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double sinCos()
+    {
+        double sum = 0;
+        for (int i = 0; i < POINTS; i++)
+        {
+            sum += math.sin(angles[i]) + math.cos(angles[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,69 @@
+package model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Замеры обычного и векторного ядер шага на всех роботах парка.
+ * Векторное ядро замеряется, только если проект собран с профилями {@code benchmarks} и {@code vector};
+ * иначе оба варианта выполняют обычный цикл. Перед каждой итерацией парк пересоздается с одинаковыми
+ * случайными позициями и целями. Цели лежат так далеко, что за итерацию роботы до них не доходят
+ * и все время движутся.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class StepKernelBenchmark
+{
+    private static final double FAR = 1e7;
+
+    @Param({"1000", "100000"})
+    private int robots;
+
+    @Param({"scalar", "vector"})
+    private String kernel;
+
+    private RobotFleet fleet;
+    private StepKernel stepKernel;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        stepKernel = "vector".equals(kernel) ? StepKernel.VECTOR : StepKernel.SCALAR;
+        if ("vector".equals(kernel) && !stepKernel.isVectorized())
+        {
+            System.err.println("Векторное ядро недоступно, замеряется обычный цикл");
+        }
+        fleet = new RobotFleet(robots);
+        final Random random = new Random(42);
+        for (int i = 0; i < robots; i++)
+        {
+            final int slot = fleet.addRobot(random.nextDouble() * 1000, random.nextDouble() * 1000,
+                    random.nextDouble() * 2 * Math.PI);
+            fleet.setTarget(slot, random.nextDouble() * FAR, random.nextDouble() * FAR);
+        }
+    }
+
+    @Benchmark
+    public RobotFleet step()
+    {
+        stepKernel.step(fleet, 0, robots, 5, 1000, 1000);
+        return fleet;
+    }
+}
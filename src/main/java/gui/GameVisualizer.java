@@ -7,12 +7,10 @@ import java.awt.Point;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
 import java.util.TimerTask;
 import javax.swing.JPanel;
-import model.Robot;
 import model.RobotsLogic;
-import model.Target;
+import model.WorldSnapshot;
 
 /**
  * Панель для визуализации игры.
@@ -56,8 +54,8 @@ public class GameVisualizer extends JPanel
             public void mouseClicked(MouseEvent e)
             {
                 Point clickPoint = e.getPoint();
-                logic.setTarget(new Target(clickPoint.getX(), clickPoint.getY()));
-                logic.setWindowBounds(new Point2D.Double(getWidth(), getHeight()));
+                logic.setTarget(clickPoint.getX(), clickPoint.getY());
+                logic.setWindowBounds(getWidth(), getHeight());
                 repaint();
             }
         });
@@ -75,22 +73,27 @@ public class GameVisualizer extends JPanel
     {
         super.paint(g);
         Graphics2D g2d = (Graphics2D) g;
-        drawRobot(g2d, logic.getRobot());
-        drawTarget(g2d, logic.getTarget());
+        try (WorldSnapshot snapshot = logic.acquireSnapshot())
+        {
+            drawRobot(g2d, snapshot.getX(0), snapshot.getY(0), snapshot.getDirection(0));
+            drawTarget(g2d, snapshot.getTargetX(0), snapshot.getTargetY(0));
+        }
     }
 
     /**
      * Рисует робота на указанном графическом контексте.
      *
      * @param g графический контекст
-     * @param robot робот для рисования
+     * @param x координата x робота
+     * @param y координата y робота
+     * @param direction направление робота
      */
-    private void drawRobot(Graphics2D g, Robot robot)
+    private void drawRobot(Graphics2D g, double x, double y, double direction)
     {
-        int robotCenterX = (int) Math.round(robot.getPosition().getX());
-        int robotCenterY = (int) Math.round(robot.getPosition().getY());
+        int robotCenterX = (int) Math.round(x);
+        int robotCenterY = (int) Math.round(y);
 
-        AffineTransform transform = AffineTransform.getRotateInstance(robot.getDirection(), robotCenterX, robotCenterY);
+        AffineTransform transform = AffineTransform.getRotateInstance(direction, robotCenterX, robotCenterY);
         g.setTransform(transform);
 
         g.setColor(ROBOT_COLOR);
@@ -108,15 +111,16 @@ public class GameVisualizer extends JPanel
      * Рисует цель на указанном графическом контексте.
      *
      * @param g графический контекст
-     * @param target цель для рисования
+     * @param x координата x цели
+     * @param y координата y цели
      */
-    private void drawTarget(Graphics2D g, Target target)
+    private void drawTarget(Graphics2D g, double x, double y)
     {
         resetTransform(g);
         g.setColor(TARGET_COLOR);
-        fillOval(g, (int) target.getPosition().getX(), (int) target.getPosition().getY(), TARGET_SIZE, TARGET_SIZE);
+        fillOval(g, (int) x, (int) y, TARGET_SIZE, TARGET_SIZE);
         g.setColor(ROBOT_BORDER_COLOR);
-        drawOval(g, (int) target.getPosition().getX(), (int) target.getPosition().getY(), TARGET_SIZE, TARGET_SIZE);
+        drawOval(g, (int) x, (int) y, TARGET_SIZE, TARGET_SIZE);
     }
 
     /**
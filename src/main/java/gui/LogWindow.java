@@ -55,7 +55,7 @@ public class LogWindow extends AbstractWindow implements LogChangeListener, Prop
     private void updateLogContent()
     {
         StringBuilder content = new StringBuilder();
-        for (LogEntry entry : logSource.all())
+        for (LogEntry entry : logSource.snapshot())
         {
             content.append(entry.getMessage()).append("\n");
         }
@@ -5,12 +5,20 @@ import java.awt.event.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.swing.*;
 
 import State.AbstractWindow;
 import log.Logger;
+import model.Checkpoint;
 import model.RobotsLogic;
 
 /**
@@ -22,6 +30,8 @@ public class MainApplicationFrame extends JFrame
     private static final Dimension SCREEN_SIZE = Toolkit.getDefaultToolkit().getScreenSize();
     private static final int INDENTED_WIDTH = SCREEN_SIZE.width - INDENT * 2;
     private static final int INDENTED_HEIGHT = SCREEN_SIZE.height - INDENT * 2;
+    private static final Path CHECKPOINT_FILE = Path.of(System.getProperty("user.home"), ".robots", "world.checkpoint");
+    private static final long CHECKPOINT_TIMEOUT_SECONDS = 5;
 
     /**
      * Текущая локаль для локализации сообщений.
@@ -40,6 +50,11 @@ public class MainApplicationFrame extends JFrame
 
     private final PropertyChangeSupport support = new PropertyChangeSupport(this);
 
+    /**
+     * Логика роботов, состояние которой сохраняется при выходе и восстанавливается при запуске.
+     */
+    private RobotsLogic logic;
+
     /**
      * Конструктор главного окна приложения.
      */
@@ -75,7 +90,7 @@ public class MainApplicationFrame extends JFrame
     private JDesktopPane createDesktopPane()
     {
         desktopPane = new JDesktopPane();
-        RobotsLogic logic = new RobotsLogic();
+        logic = loadWorld();
 
         // Добавляем окна на панель рабочего стола
         addWindow(createLogWindow(), 150, 350);
@@ -94,6 +109,48 @@ public class MainApplicationFrame extends JFrame
         return desktopPane;
     }
 
+    /**
+     * Восстанавливает мир из контрольной точки, сохраненной при прошлом выходе.
+     * @return Восстановленная логика или новая логика, если контрольной точки нет или она повреждена.
+     */
+    private RobotsLogic loadWorld()
+    {
+        if (Files.exists(CHECKPOINT_FILE))
+        {
+            try
+            {
+                return Checkpoint.restore(CHECKPOINT_FILE);
+            } catch (IOException e)
+            {
+                Logger.error("Не удалось восстановить контрольную точку: " + e);
+            }
+        }
+        return new RobotsLogic();
+    }
+
+    /**
+     * Сохраняет контрольную точку мира, дожидаясь окончания записи.
+     */
+    private void saveWorld()
+    {
+        try
+        {
+            final CompletableFuture<Void> saved = logic.saveCheckpoint(CHECKPOINT_FILE);
+            // Если игровое окно закрыто и шаги не выполняются, команда сохранения применяется без шага
+            logic.applyCommands();
+            saved.get(CHECKPOINT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e)
+        {
+            Logger.error("Не удалось сохранить контрольную точку: " + e.getCause());
+        } catch (TimeoutException e)
+        {
+            Logger.error("Контрольная точка не сохранена вовремя");
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Создает окно для отображения логов.
      * @return Созданное окно для отображения логов.
@@ -364,6 +421,9 @@ public class MainApplicationFrame extends JFrame
         if (confirmation == JOptionPane.YES_OPTION)
         {
             callCloseDialog();
+            saveWorld();
+            logic.stopTimer();
+            Logger.disableAsync();
             System.exit(0); // Завершение работы приложения
         }
     }
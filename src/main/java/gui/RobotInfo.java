@@ -1,24 +1,28 @@
 package gui;
 
 import java.awt.BorderLayout;
+import java.awt.EventQueue;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.Observable;
-import java.util.Observer;
 import java.util.ResourceBundle;
 import javax.swing.JLabel;
 import java.util.logging.Logger;
 
 import State.AbstractWindow;
+import model.ChangeNotifier;
 import model.RobotsLogic;
+import model.SimulationListener;
+import model.WorldSnapshot;
 
 /**
  * Окно для отображения информации о роботе, включая его координаты и направление.
  */
-public class RobotInfo extends AbstractWindow implements Observer, PropertyChangeListener
+public class RobotInfo extends AbstractWindow implements SimulationListener, PropertyChangeListener
 {
     private static final Logger logger = Logger.getLogger(RobotInfo.class.getName());
+    private static final double UPDATES_PER_SECOND = 10;
     private final JLabel label;
+    private final ChangeNotifier.Subscription subscription;
 
     /**
      * Конструктор окна информации о роботе.
@@ -30,7 +34,7 @@ public class RobotInfo extends AbstractWindow implements Observer, PropertyChang
         this.label = new JLabel();
         setTitle("Координаты");
 
-        logic.addObserver(this);
+        subscription = logic.subscribe(this, UPDATES_PER_SECOND, EventQueue::invokeLater);
         setResizable(true);
         setClosable(true);
         setMaximizable(true);
@@ -41,23 +45,24 @@ public class RobotInfo extends AbstractWindow implements Observer, PropertyChang
     }
 
     /**
-     * Обновляет информацию о положении и направлении робота.
-     * @param o объект Observable
-     * @param arg дополнительные аргументы
+     * Обновляет информацию о положении и направлении робота. Вызывается на потоке обработки событий.
+     * @param snapshot кадр состояния мира
      */
     @Override
-    public void update(Observable o, Object arg)
+    public void onSimulationChanged(WorldSnapshot snapshot)
     {
-        if (o instanceof RobotsLogic)
-        {
-            RobotsLogic lg = (RobotsLogic) o;
-            var position = lg.getRobot().getPosition();
-            var direction = lg.getRobot().getDirection();
-            label.setText(String.format("x=%.2f y=%.2f dir=%.2f", position.getX(), position.getY(), direction));
-        } else
-        {
-            logger.warning("Observable is not an instance of RobotsLogic");
-        }
+        label.setText(String.format("x=%.2f y=%.2f dir=%.2f",
+                snapshot.getX(0), snapshot.getY(0), snapshot.getDirection(0)));
+    }
+
+    /**
+     * Освобождает ресурсы и отменяет подписку на изменения симуляции.
+     */
+    @Override
+    public void dispose()
+    {
+        super.dispose();
+        subscription.cancel();
     }
 
     /**
@@ -1,20 +1,29 @@
 package gui;
 
 import java.awt.Frame;
+import java.io.IOException;
+import java.nio.file.Path;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import log.AsyncLogDispatcher;
+import log.BackpressurePolicy;
+import log.MappedLogSink;
+
 public class RobotsProgram
 {
 
   private static final Logger logger = Logger.getLogger(RobotsProgram.class.getName());
+  private static final Path LOG_DIRECTORY = Path.of(System.getProperty("user.home"), ".robots", "log");
 
   public static void main(String[] args)
   {
     setLookAndFeel();
+    // Потоки симуляции только ставят записи журнала в очередь, окно логов и файловый журнал обновляются пачками
+    log.Logger.enableAsync(AsyncLogDispatcher.DEFAULT_QUEUE_CAPACITY, BackpressurePolicy.BLOCK, openLogSink());
     SwingUtilities.invokeLater(() ->
     {
       MainApplicationFrame frame = new MainApplicationFrame();
@@ -24,6 +33,22 @@ public class RobotsProgram
     });
   }
 
+  /**
+   * Открывает файловый журнал в каталоге пользователя.
+   * @return файловый журнал или null, если его не удалось открыть
+   */
+  private static MappedLogSink openLogSink()
+  {
+    try
+    {
+      return new MappedLogSink(LOG_DIRECTORY);
+    } catch (IOException e)
+    {
+      logger.log(Level.SEVERE, "Не удалось открыть файловый журнал", e);
+      return null;
+    }
+  }
+
   /**
    * Устанавливает внешний вид Nimbus для приложения.
    */
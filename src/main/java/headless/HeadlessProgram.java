@@ -0,0 +1,210 @@
+package headless;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import model.MathBackend;
+import model.RobotFleet;
+import model.StepKernel;
+
+/**
+ * Точка входа для запуска симуляции без графического интерфейса.
+ * <p>
+ * Работает напрямую с {@link RobotFleet} и не загружает классы AWT и Swing, поэтому подходит для серверов без дисплея.
+ * Симуляция выполняется с максимальной скоростью или с заданной частотой шагов, пока не будет выполнено
+ * указанное число шагов либо пока все роботы не достигнут целей. В конце печатается пропускная способность.
+ * <p>
+ * Параметры задаются в виде {@code --name=value}:
+ * <ul>
+ *     <li>{@code --robots} — число роботов (1000);</li>
+ *     <li>{@code --ticks} — наибольшее число шагов (1000000);</li>
+ *     <li>{@code --until-arrived} — остановиться, когда все роботы у целей (true);</li>
+ *     <li>{@code --rate} — шагов в секунду, 0 — максимальная скорость (0);</li>
+ *     <li>{@code --parallelism} — число потоков для шага (1);</li>
+ *     <li>{@code --width}, {@code --height} — размеры области (1000 × 1000);</li>
+ *     <li>{@code --seed} — зерно генератора начальных позиций и целей (42);</li>
+ *     <li>{@code --math} — тригонометрия шага: {@code exact} или {@code fast} (exact);</li>
+ *     <li>{@code --kernel} — ядро шага: {@code scalar} или {@code vector} (scalar); векторному ядру нужны
+ *     сборка с профилем {@code vector} и запуск с {@code --add-modules jdk.incubator.vector}.</li>
+ * </ul>
+ */
+public final class HeadlessProgram
+{
+    private static final double DELTA_TIME = 5;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private int robots = 1000;
+    private long ticks = 1_000_000;
+    private boolean untilArrived = true;
+    private double rate = 0;
+    private int parallelism = 1;
+    private double width = 1000;
+    private double height = 1000;
+    private long seed = 42;
+    private MathBackend math = MathBackend.EXACT;
+    private StepKernel kernel = StepKernel.SCALAR;
+
+    private HeadlessProgram()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        final HeadlessProgram program = new HeadlessProgram();
+        try
+        {
+            program.parse(args);
+        } catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("usage: --robots=N --ticks=N --until-arrived=true|false --rate=TICKS_PER_SECOND"
+                    + " --parallelism=N --width=W --height=H --seed=S --math=exact|fast"
+                    + " --kernel=scalar|vector");
+            System.exit(2);
+        }
+        program.run();
+    }
+
+    /**
+     * Разбирает параметры командной строки.
+     * @param args параметры командной строки
+     */
+    private void parse(String[] args)
+    {
+        for (String arg : args)
+        {
+            final int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0)
+            {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            final String name = arg.substring(2, separator);
+            final String value = arg.substring(separator + 1);
+            try
+            {
+                switch (name)
+                {
+                    case "robots" -> robots = Integer.parseInt(value);
+                    case "ticks" -> ticks = Long.parseLong(value);
+                    case "until-arrived" -> untilArrived = Boolean.parseBoolean(value);
+                    case "rate" -> rate = Double.parseDouble(value);
+                    case "parallelism" -> parallelism = Integer.parseInt(value);
+                    case "width" -> width = Double.parseDouble(value);
+                    case "height" -> height = Double.parseDouble(value);
+                    case "seed" -> seed = Long.parseLong(value);
+                    case "math" -> math = switch (value)
+                    {
+                        case "exact" -> MathBackend.EXACT;
+                        case "fast" -> MathBackend.FAST;
+                        default -> throw new IllegalArgumentException("Bad value for --math: " + value);
+                    };
+                    case "kernel" -> kernel = switch (value)
+                    {
+                        case "scalar" -> StepKernel.SCALAR;
+                        case "vector" -> StepKernel.VECTOR;
+                        default -> throw new IllegalArgumentException("Bad value for --kernel: " + value);
+                    };
+                    default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+            } catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Bad value for --" + name + ": " + value);
+            }
+        }
+        if (robots < 1 || ticks < 1 || rate < 0 || parallelism < 1 || width <= 0 || height <= 0)
+        {
+            throw new IllegalArgumentException("Arguments out of range");
+        }
+    }
+
+    /**
+     * Создает парк со случайными позициями и целями и выполняет симуляцию.
+     */
+    private void run()
+    {
+        final RobotFleet fleet = new RobotFleet(robots);
+        fleet.setMathBackend(math);
+        fleet.setStepKernel(kernel);
+        final Random random = new Random(seed);
+        for (int i = 0; i < robots; i++)
+        {
+            final int slot = fleet.addRobot(random.nextDouble() * width, random.nextDouble() * height,
+                    random.nextDouble() * 2 * Math.PI);
+            fleet.setTarget(slot, random.nextDouble() * width, random.nextDouble() * height);
+        }
+
+        final ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        final long periodNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+
+        System.out.printf(Locale.ROOT, "robots=%d ticks<=%d until-arrived=%b rate=%s parallelism=%d math=%s kernel=%s%n",
+                robots, ticks, untilArrived, rate > 0 ? rate + "/s" : "max", parallelism,
+                math == MathBackend.FAST ? "fast" : "exact", kernel.isVectorized() ? "vector" : "scalar");
+
+        final long start = System.nanoTime();
+        long nextTick = start;
+        long nextReport = start + REPORT_INTERVAL_NANOS;
+        long tick = 0;
+        long robotSteps = 0;
+        while (tick < ticks)
+        {
+            if (periodNanos > 0)
+            {
+                final long wait = nextTick - System.nanoTime();
+                if (wait > 0)
+                {
+                    LockSupport.parkNanos(wait);
+                }
+                nextTick += periodNanos;
+            }
+
+            // Шаг двигает только активных роботов; остановившиеся у цели не учитываются
+            robotSteps += fleet.getActiveCount();
+            if (pool == null)
+            {
+                fleet.step(DELTA_TIME, width, height);
+            } else
+            {
+                fleet.stepParallel(DELTA_TIME, width, height, pool, RobotFleet.DEFAULT_CHUNK_SIZE);
+            }
+            tick++;
+
+            // Активное множество пустеет на шаге после прибытия последнего робота, без обхода всего парка
+            if (untilArrived && fleet.getActiveCount() == 0)
+            {
+                break;
+            }
+            final long now = System.nanoTime();
+            if (now - nextReport >= 0)
+            {
+                report("progress", tick, robotSteps, now - start, fleet);
+                nextReport = now + REPORT_INTERVAL_NANOS;
+            }
+        }
+        report("done", tick, robotSteps, System.nanoTime() - start, fleet);
+
+        if (pool != null)
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Печатает пропускную способность симуляции.
+     * @param stage название этапа
+     * @param tick число выполненных шагов
+     * @param robotSteps сумма числа активных роботов по выполненным шагам
+     * @param elapsedNanos прошедшее время в наносекундах
+     * @param fleet парк роботов
+     */
+    private void report(String stage, long tick, long robotSteps, long elapsedNanos, RobotFleet fleet)
+    {
+        final double seconds = elapsedNanos / 1e9;
+        final double ticksPerSecond = seconds > 0 ? tick / seconds : 0;
+        System.out.printf(Locale.ROOT, "%s: ticks=%d elapsed=%.3fs ticks/s=%.1f robot-steps/s=%.1f arrived=%d/%d active=%d%n",
+                stage, tick, seconds, ticksPerSecond, seconds > 0 ? robotSteps / seconds : 0, fleet.countArrived(), robots,
+                fleet.getActiveCount());
+    }
+}
@@ -0,0 +1,327 @@
+package log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Асинхронная доставка записей в источник логов.
+ * <p>
+ * Вызывающий поток только кладет запись в ограниченную очередь. Фоновый поток забирает записи пачками,
+ * добавляет каждую пачку в источник и оповещает слушателей один раз на пачку
+ * ({@link LogWindowSource#appendAll(List)}). Что делать, когда очередь заполнена, задает
+ * {@link BackpressurePolicy}. Если задан файловый журнал ({@link MappedLogSink}), фоновый поток пишет
+ * в него те же пачки, так что вызывающие потоки с файлами не работают. После {@link #close()} записи
+ * добавляются в источник синхронно, а файловый журнал закрывается.
+ */
+public class AsyncLogDispatcher implements AutoCloseable
+{
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+    private static final LogEntry SHUTDOWN = new LogEntry(LogLevel.Trace, "");
+    private static final java.util.logging.Logger logger =
+            java.util.logging.Logger.getLogger(AsyncLogDispatcher.class.getName());
+
+    private final LogWindowSource target;
+    private final MappedLogSink sink;
+    private final BlockingQueue<LogEntry> queue;
+    private final int batchSize;
+    private final BackpressurePolicy policy;
+    private final int sampleRate;
+    private final Thread thread;
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final Object drainLock = new Object();
+    private volatile boolean closed;
+    private volatile boolean sinkClosed;
+
+    /**
+     * Создает диспетчер с размером пачки и частотой выборки по умолчанию и запускает фоновый поток.
+     * @param target источник логов
+     * @param queueCapacity емкость очереди
+     * @param policy поведение при заполненной очереди
+     */
+    public AsyncLogDispatcher(LogWindowSource target, int queueCapacity, BackpressurePolicy policy)
+    {
+        this(target, queueCapacity, DEFAULT_BATCH_SIZE, policy, DEFAULT_SAMPLE_RATE, null);
+    }
+
+    /**
+     * Создает диспетчер с размером пачки и частотой выборки по умолчанию, который также пишет записи
+     * в файловый журнал, и запускает фоновый поток.
+     * @param target источник логов
+     * @param queueCapacity емкость очереди
+     * @param policy поведение при заполненной очереди
+     * @param sink файловый журнал; закрывается вместе с диспетчером
+     */
+    public AsyncLogDispatcher(LogWindowSource target, int queueCapacity, BackpressurePolicy policy, MappedLogSink sink)
+    {
+        this(target, queueCapacity, DEFAULT_BATCH_SIZE, policy, DEFAULT_SAMPLE_RATE, sink);
+    }
+
+    /**
+     * Создает диспетчер и запускает фоновый поток.
+     * @param target источник логов
+     * @param queueCapacity емкость очереди
+     * @param batchSize наибольшее число записей в пачке
+     * @param policy поведение при заполненной очереди
+     * @param sampleRate для {@link BackpressurePolicy#SAMPLE}: сохраняется каждая {@code sampleRate}-я
+     * не поместившаяся запись
+     * @param sink файловый журнал или null; закрывается вместе с диспетчером
+     */
+    public AsyncLogDispatcher(LogWindowSource target, int queueCapacity, int batchSize, BackpressurePolicy policy,
+                              int sampleRate, MappedLogSink sink)
+    {
+        if (queueCapacity < 1 || batchSize < 1 || sampleRate < 1)
+        {
+            throw new IllegalArgumentException("queueCapacity, batchSize and sampleRate must be positive");
+        }
+        this.target = target;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.thread = new Thread(this::dispatch, "log dispatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Ставит запись в очередь. Если очередь заполнена, поступает согласно политике.
+     * @param entry запись
+     */
+    public void submit(LogEntry entry)
+    {
+        if (closed)
+        {
+            target.append(entry);
+            return;
+        }
+        if (!queue.offer(entry))
+        {
+            final long overflow = overflowCount.getAndIncrement();
+            switch (policy)
+            {
+                case BLOCK -> put(entry);
+                case DROP -> droppedCount.incrementAndGet();
+                case SAMPLE ->
+                {
+                    if (overflow % sampleRate == 0)
+                    {
+                        put(entry);
+                    } else
+                    {
+                        droppedCount.incrementAndGet();
+                    }
+                }
+            }
+        }
+        // Диспетчер мог закрыться, пока запись ставилась в очередь: фоновый поток ее уже не заберет
+        if (closed)
+        {
+            drainAfterClose();
+        }
+    }
+
+    /**
+     * Доставляет записи, оставшиеся в очереди после закрытия. Пока {@link #close()} не закончил, ничего
+     * не делает: записи, стоящие в очереди, доставит он сам.
+     */
+    private void drainAfterClose()
+    {
+        synchronized (drainLock)
+        {
+            if (sinkClosed)
+            {
+                drainQueue();
+            }
+        }
+    }
+
+    /**
+     * Доставляет пачками все записи очереди, пока она не опустеет.
+     */
+    private void drainQueue()
+    {
+        final List<LogEntry> rest = new ArrayList<>(batchSize);
+        while (queue.drainTo(rest, batchSize) > 0)
+        {
+            rest.remove(SHUTDOWN);
+            deliver(rest);
+            rest.clear();
+        }
+    }
+
+    /**
+     * Ждет места в очереди. Если поток прерван, запись отбрасывается, а признак прерывания восстанавливается.
+     */
+    private void put(LogEntry entry)
+    {
+        try
+        {
+            queue.put(entry);
+        } catch (InterruptedException e)
+        {
+            droppedCount.incrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Цикл фонового потока: забирает записи пачками и передает их источнику.
+     */
+    private void dispatch()
+    {
+        final List<LogEntry> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        while (running)
+        {
+            try
+            {
+                batch.add(queue.take());
+            } catch (InterruptedException e)
+            {
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            // Записи, поставленные после признака остановки, доставляются вместе с пачкой
+            if (batch.remove(SHUTDOWN))
+            {
+                running = false;
+            }
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Передает пачку источнику и файловому журналу. Ошибка слушателя или записи в файл не останавливает
+     * доставку следующих пачек. После закрытия файлового журнала записи передаются только источнику.
+     */
+    private void deliver(List<LogEntry> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            target.appendAll(batch);
+        } catch (RuntimeException e)
+        {
+            logger.log(Level.SEVERE, "Ошибка при доставке записей журнала", e);
+        }
+        if (sink != null && !sinkClosed)
+        {
+            try
+            {
+                sink.append(batch);
+            } catch (IOException e)
+            {
+                logger.log(Level.SEVERE, "Ошибка при записи журнала в файл", e);
+            }
+        }
+        batchCount.incrementAndGet();
+    }
+
+    /**
+     * Доставляет записи, уже стоящие в очереди, и останавливает фоновый поток.
+     * Последующие записи добавляются в источник синхронно. Файловый журнал сбрасывается на диск и закрывается;
+     * записи, поставленные в очередь одновременно с закрытием, но после этого, попадают только в источник.
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                queue.put(SHUTDOWN);
+                thread.join();
+                break;
+            } catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        synchronized (drainLock)
+        {
+            // Записи, поставленные в очередь одновременно с закрытием, доставляются здесь; те, что появятся
+            // после, доставит поставивший их поток (drainAfterClose)
+            drainQueue();
+            if (sink != null)
+            {
+                try
+                {
+                    sink.close();
+                } catch (IOException e)
+                {
+                    logger.log(Level.SEVERE, "Ошибка при закрытии файлового журнала", e);
+                }
+            }
+            sinkClosed = true;
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Возвращает число записей в очереди.
+     * @return число записей
+     */
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Возвращает число отброшенных записей.
+     * @return число записей
+     */
+    public long getDroppedCount()
+    {
+        return droppedCount.get();
+    }
+
+    /**
+     * Возвращает число доставленных пачек.
+     * @return число пачек
+     */
+    public long getBatchCount()
+    {
+        return batchCount.get();
+    }
+
+    /**
+     * Возвращает файловый журнал.
+     * @return файловый журнал или null, если записи в файл не пишутся
+     */
+    public MappedLogSink getSink()
+    {
+        return sink;
+    }
+
+    /**
+     * Возвращает поведение при заполненной очереди.
+     * @return политика
+     */
+    public BackpressurePolicy getPolicy()
+    {
+        return policy;
+    }
+}
@@ -0,0 +1,23 @@
+package log;
+
+/**
+ * Поведение асинхронного журнала ({@link AsyncLogDispatcher}), когда очередь записей заполнена.
+ */
+public enum BackpressurePolicy
+{
+    /**
+     * Вызывающий поток ждет, пока в очереди освободится место. Записи не теряются.
+     */
+    BLOCK,
+
+    /**
+     * Запись отбрасывается, вызывающий поток не ждет.
+     */
+    DROP,
+
+    /**
+     * Сохраняется каждая N-я запись из не поместившихся (вызывающий поток ждет места только для нее),
+     * остальные отбрасываются.
+     */
+    SAMPLE
+}
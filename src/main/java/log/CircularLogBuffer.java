@@ -1,25 +1,32 @@
 package log;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Кольцевой буфер для хранения журнала записей логов.
+ * <p>
+ * Буфер не использует блокировок и допускает одновременную запись из нескольких потоков.
+ * Каждая запись получает порядковый номер из общего счетчика и кладется в ячейку {@code номер % емкость}
+ * вместе с этим номером, поэтому при переполнении новые записи вытесняют самые старые. Читатель по номеру
+ * в ячейке отличает запись, которую он ищет, от еще не записанной и от уже вытесненной, и получает
+ * непрерывный диапазон записей, не останавливая писателей.
+ * <p>
+ * {@link #range(int, int)}, {@link #snapshot()} и {@link #view(long, long)} возвращают представления
+ * ({@link View}), которые обходят ячейки буфера на месте, без копирования записей.
  * @param <T> тип элементов, хранящихся в буфере
  */
 public class CircularLogBuffer<T>
 {
-    private final T[] buffer;
-    private int size;
-    private int start;
-    private int end;
-    private final ReentrantLock lock;
-    private final Condition notFull;
-    private final Condition notEmpty;
+    private final AtomicReferenceArray<Slot> slots;
+    private final int capacity;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private volatile long clearedSequence;
 
     /**
      * Конструктор кольцевого буфера.
@@ -27,66 +34,97 @@ public class CircularLogBuffer<T>
      */
     public CircularLogBuffer(int capacity)
     {
-        buffer = (T[]) new Object[capacity];
-        size = 0;
-        start = 0;
-        end = 0;
-        lock = new ReentrantLock();
-        notFull = lock.newCondition();
-        notEmpty = lock.newCondition();
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
     }
 
     /**
-     * Добавляет запись в буфер.
+     * Добавляет запись в буфер. Если буфер заполнен, вытесняется самая старая запись.
      * @param entry запись для добавления
      */
     public void append(LogEntry entry)
     {
-        lock.lock();
-        try
+        final long sequence = nextSequence.getAndIncrement();
+        final int index = (int) (sequence % capacity);
+        final Slot slot = new Slot(sequence, entry);
+        while (true)
         {
-            if (size == buffer.length)
+            final Slot current = slots.get(index);
+            // Писатель следующего круга мог опередить этого: тогда запись уже вытеснена и не публикуется
+            if (current != null && current.sequence > sequence)
             {
-                start = (start + 1) % buffer.length;
-                size--;
+                return;
+            }
+            if (slots.compareAndSet(index, current, slot))
+            {
+                return;
             }
-            buffer[end] = (T) entry;
-            end = (end + 1) % buffer.length;
-            size++;
-            notEmpty.signal();
-        } finally
-        {
-            lock.unlock();
         }
     }
 
     /**
-     * Возвращает диапазон записей из буфера.
-     * @param startFrom начальный индекс
+     * Возвращает диапазон записей из буфера в виде представления без копирования.
+     * @param startFrom индекс первой записи, считая от самой старой
      * @param count количество записей
-     * @return список записей в указанном диапазоне
+     * @return записи в указанном диапазоне
      */
     public Iterable<LogEntry> range(int startFrom, int count)
     {
-        lock.lock();
-        try
+        final long end = nextSequence.get();
+        final long first = firstSequence(end);
+        if (startFrom < 0 || count <= 0 || startFrom >= end - first)
         {
-            if (startFrom < 0 || startFrom >= size)
-            {
-                return Collections.emptyList();
-            }
-            int index = (start + startFrom) % buffer.length;
-            List<LogEntry> result = new ArrayList<>();
-            for (int i = 0; i < count && i < size; i++)
-            {
-                result.add((LogEntry) buffer[index]);
-                index = (index + 1) % buffer.length;
-            }
-            return result;
-        } finally
+            return Collections.emptyList();
+        }
+        return new View(this, first + startFrom, Math.min(first + startFrom + count, end));
+    }
+
+    /**
+     * Возвращает представление всех записей, которые сейчас есть в буфере.
+     * @return представление
+     */
+    public View snapshot()
+    {
+        final long end = nextSequence.get();
+        return new View(this, firstSequence(end), end);
+    }
+
+    /**
+     * Возвращает представление записей с порядковыми номерами {@code [fromSequence, toSequence)}.
+     * Номера могут указывать и на уже вытесненные, и на еще не добавленные записи.
+     * @param fromSequence номер первой записи
+     * @param toSequence номер, следующий за последней записью
+     * @return представление
+     */
+    public View view(long fromSequence, long toSequence)
+    {
+        if (fromSequence < 0 || toSequence < fromSequence)
         {
-            lock.unlock();
+            throw new IllegalArgumentException("Bad sequence range: " + fromSequence + ".." + toSequence);
         }
+        return new View(this, fromSequence, toSequence);
+    }
+
+    /**
+     * Возвращает порядковый номер, который получит следующая запись.
+     * @return номер следующей записи
+     */
+    public long getNextSequence()
+    {
+        return nextSequence.get();
+    }
+
+    /**
+     * Возвращает порядковый номер самой старой записи в буфере.
+     * @return номер самой старой записи
+     */
+    public long getFirstSequence()
+    {
+        return firstSequence(nextSequence.get());
     }
 
     /**
@@ -95,14 +133,8 @@ public class CircularLogBuffer<T>
      */
     public int size()
     {
-        lock.lock();
-        try
-        {
-            return size;
-        } finally
-        {
-            lock.unlock();
-        }
+        final long end = nextSequence.get();
+        return (int) (end - firstSequence(end));
     }
 
     /**
@@ -111,37 +143,186 @@ public class CircularLogBuffer<T>
      */
     public List<LogEntry> all()
     {
-        lock.lock();
-        try
+        final long end = nextSequence.get();
+        return read(firstSequence(end), end);
+    }
+
+    /**
+     * Очищает буфер. Записи, добавление которых началось до очистки, в буфере не появятся.
+     */
+    public void clear()
+    {
+        clearedSequence = nextSequence.get();
+    }
+
+    /**
+     * Возвращает номер самой старой записи, которая может оставаться в буфере.
+     * @param end номер следующей записи
+     */
+    private long firstSequence(long end)
+    {
+        return Math.max(clearedSequence, end - capacity);
+    }
+
+    /**
+     * Читает записи с номерами {@code [first, end)}. Чтение останавливается на первой еще не записанной ячейке;
+     * если запись успели вытеснить, уже прочитанные более старые записи отбрасываются, чтобы результат
+     * оставался непрерывным.
+     */
+    private List<LogEntry> read(long first, long end)
+    {
+        final List<LogEntry> result = new ArrayList<>((int) Math.max(0, end - first));
+        for (long sequence = first; sequence < end; sequence++)
         {
-            List<LogEntry> result = new ArrayList<>();
-            for (int i = 0; i < size; i++)
+            final Slot slot = slots.get((int) (sequence % capacity));
+            if (slot == null || slot.sequence < sequence)
             {
-                result.add((LogEntry) buffer[(start + i) % buffer.length]);
+                break;
             }
-            return result;
-        } finally
-        {
-            lock.unlock();
+            if (slot.sequence > sequence)
+            {
+                result.clear();
+                continue;
+            }
+            result.add(slot.entry);
         }
+        return result;
     }
 
     /**
-     * Очищает буфер.
+     * Представление записей буфера с порядковыми номерами {@code [from, to)} только для чтения.
+     * <p>
+     * Представление не копирует записи: обход читает ячейки буфера в момент обращения. Записи, которые
+     * к этому моменту вытеснены или удалены очисткой, пропускаются; обход останавливается на первой записи,
+     * которая еще не добавлена. Поэтому одно представление можно обходить многократно, а обход не мешает
+     * писателям.
      */
-    public void clear()
+    public static final class View implements Iterable<LogEntry>
     {
-        lock.lock();
-        try
+        private final CircularLogBuffer<?> buffer;
+        private final long from;
+        private final long to;
+
+        private View(CircularLogBuffer<?> buffer, long from, long to)
+        {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Возвращает номер первой записи представления.
+         * @return номер первой записи
+         */
+        public long getFromSequence()
+        {
+            return from;
+        }
+
+        /**
+         * Возвращает номер, следующий за последней записью представления.
+         * @return номер после последней записи
+         */
+        public long getToSequence()
+        {
+            return to;
+        }
+
+        /**
+         * Возвращает число номеров в представлении, включая вытесненные и еще не добавленные записи.
+         * @return число номеров
+         */
+        public long length()
         {
-            Arrays.fill(buffer, null);
-            size = 0;
-            start = 0;
-            end = 0;
-            notFull.signalAll();
-        } finally
+            return to - from;
+        }
+
+        /**
+         * Проверяет, вытеснена или удалена ли хотя бы одна запись представления.
+         * @return true, если часть записей уже недоступна
+         */
+        public boolean isOverwritten()
+        {
+            return from < buffer.getFirstSequence() && from < to;
+        }
+
+        /**
+         * Возвращает запись с указанным номером.
+         * @param sequence порядковый номер
+         * @return запись или null, если номер вне представления, запись вытеснена или еще не добавлена
+         */
+        public LogEntry get(long sequence)
+        {
+            if (sequence < from || sequence >= to || sequence < buffer.clearedSequence)
+            {
+                return null;
+            }
+            final Slot slot = buffer.slots.get((int) (sequence % buffer.capacity));
+            return slot != null && slot.sequence == sequence ? slot.entry : null;
+        }
+
+        @Override
+        public Iterator<LogEntry> iterator()
+        {
+            return new Iterator<>()
+            {
+                private long cursor = from;
+                private LogEntry pending;
+
+                @Override
+                public boolean hasNext()
+                {
+                    while (pending == null && cursor < to)
+                    {
+                        if (cursor < buffer.clearedSequence)
+                        {
+                            cursor = buffer.clearedSequence;
+                            continue;
+                        }
+                        final Slot slot = buffer.slots.get((int) (cursor % buffer.capacity));
+                        if (slot == null || slot.sequence < cursor)
+                        {
+                            return false;
+                        }
+                        if (slot.sequence > cursor)
+                        {
+                            // Запись вытеснена: переходим к самой старой из оставшихся
+                            cursor = Math.max(cursor + 1, buffer.getFirstSequence());
+                            continue;
+                        }
+                        pending = slot.entry;
+                        cursor++;
+                    }
+                    return pending != null;
+                }
+
+                @Override
+                public LogEntry next()
+                {
+                    if (!hasNext())
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    final LogEntry entry = pending;
+                    pending = null;
+                    return entry;
+                }
+            };
+        }
+    }
+
+    /**
+     * Запись вместе с ее порядковым номером. Неизменяема, поэтому читается из ячейки целиком.
+     */
+    private static final class Slot
+    {
+        private final long sequence;
+        private final LogEntry entry;
+
+        private Slot(long sequence, LogEntry entry)
         {
-            lock.unlock();
+            this.sequence = sequence;
+            this.entry = entry;
         }
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ public class LogWindowSource
     private final CircularLogBuffer<LogEntry> messages;
     private final List<LogChangeListener> listeners;
     private volatile LogChangeListener[] activeListeners;
+    private volatile LogLevel minimumLevel = LogLevel.Trace;
 
     public LogWindowSource(int queueLength)
     {
@@ -36,10 +37,81 @@ public class LogWindowSource
         }
     }
 
+    /**
+     * Устанавливает наименьший уровень записей, которые принимает источник. Записи ниже этого уровня
+     * отбрасываются, а {@link Logger} не строит для них сообщения.
+     * @param level наименьший уровень
+     */
+    public void setMinimumLevel(LogLevel level)
+    {
+        minimumLevel = level;
+    }
+
+    /**
+     * Возвращает наименьший уровень записей, которые принимает источник.
+     * @return наименьший уровень
+     */
+    public LogLevel getMinimumLevel()
+    {
+        return minimumLevel;
+    }
+
+    /**
+     * Проверяет, принимает ли источник записи указанного уровня. Проверка сводится к одному чтению поля
+     * и сравнению двух чисел.
+     * @param level уровень записи
+     * @return true, если записи этого уровня сохраняются
+     */
+    public boolean isEnabled(LogLevel level)
+    {
+        return level.getLevel() >= minimumLevel.getLevel();
+    }
+
     public void append(LogLevel logLevel, String message)
     {
-        LogEntry entry = new LogEntry(logLevel, message);
+        if (isEnabled(logLevel))
+        {
+            append(new LogEntry(logLevel, message));
+        }
+    }
+
+    /**
+     * Добавляет запись и оповещает слушателей. Запись ниже наименьшего уровня отбрасывается.
+     * @param entry запись
+     */
+    public void append(LogEntry entry)
+    {
+        if (!isEnabled(entry.getLevel()))
+        {
+            return;
+        }
         messages.append(entry);
+        notifyListeners();
+    }
+
+    /**
+     * Добавляет записи по порядку и оповещает слушателей один раз. Записи ниже наименьшего уровня отбрасываются.
+     * @param entries записи
+     */
+    public void appendAll(List<LogEntry> entries)
+    {
+        boolean appended = false;
+        for (LogEntry entry : entries)
+        {
+            if (isEnabled(entry.getLevel()))
+            {
+                messages.append(entry);
+                appended = true;
+            }
+        }
+        if (appended)
+        {
+            notifyListeners();
+        }
+    }
+
+    private void notifyListeners()
+    {
         LogChangeListener[] currentListeners = activeListeners;
         if (currentListeners == null)
         {
@@ -47,9 +119,9 @@ public class LogWindowSource
             {
                 if (activeListeners == null)
                 {
-                    currentListeners = listeners.toArray(new LogChangeListener[0]);
-                    activeListeners = currentListeners;
+                    activeListeners = listeners.toArray(new LogChangeListener[0]);
                 }
+                currentListeners = activeListeners;
             }
         }
         for (LogChangeListener listener : currentListeners)
@@ -70,7 +142,36 @@ public class LogWindowSource
             return Collections.emptyList();
         }
         int indexTo = Math.min(startFrom + count, messages.size());
-        return messages.range(startFrom, indexTo);
+        return messages.range(startFrom, indexTo - startFrom);
+    }
+
+    /**
+     * Возвращает представление всех записей без копирования.
+     * @return представление
+     */
+    public CircularLogBuffer.View snapshot()
+    {
+        return messages.snapshot();
+    }
+
+    /**
+     * Возвращает представление записей с порядковыми номерами {@code [fromSequence, toSequence)} без копирования.
+     * @param fromSequence номер первой записи
+     * @param toSequence номер, следующий за последней записью
+     * @return представление
+     */
+    public CircularLogBuffer.View view(long fromSequence, long toSequence)
+    {
+        return messages.view(fromSequence, toSequence);
+    }
+
+    /**
+     * Возвращает порядковый номер, который получит следующая запись.
+     * @return номер следующей записи
+     */
+    public long getNextSequence()
+    {
+        return messages.getNextSequence();
     }
 
     public Iterable<LogEntry> all()
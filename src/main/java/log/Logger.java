@@ -1,8 +1,19 @@
 package log;
 
+import java.util.function.Supplier;
+
+/**
+ * Журнал приложения, пишущий в источник логов по умолчанию.
+ * <p>
+ * Записи ниже наименьшего уровня источника ({@link LogWindowSource#setMinimumLevel(LogLevel)}) отбрасываются
+ * до построения сообщения. Для сообщений, которые дорого строить, есть варианты с {@link Supplier}
+ * и с шаблоном, где каждое {@code {}} по порядку заменяется следующим аргументом: строка собирается только
+ * для сохраняемых записей. Варианты с одним и двумя аргументами не создают массива аргументов.
+ */
 public final class Logger
 {
     private static final LogWindowSource defaultLogSource;
+    private static volatile AsyncLogDispatcher dispatcher;
 
     static
     {
@@ -15,16 +26,202 @@ public final class Logger
 
     public static void debug(String message)
     {
-        defaultLogSource.append(LogLevel.Debug, message);
+        log(LogLevel.Debug, message);
+    }
+
+    public static void debug(Supplier<String> message)
+    {
+        log(LogLevel.Debug, message);
+    }
+
+    public static void debug(String template, Object argument)
+    {
+        if (isEnabled(LogLevel.Debug))
+        {
+            append(LogLevel.Debug, format(template, argument));
+        }
+    }
+
+    public static void debug(String template, Object first, Object second)
+    {
+        if (isEnabled(LogLevel.Debug))
+        {
+            append(LogLevel.Debug, format(template, first, second));
+        }
+    }
+
+    public static void debug(String template, Object... arguments)
+    {
+        log(LogLevel.Debug, template, arguments);
     }
 
     public static void error(String message)
     {
-        defaultLogSource.append(LogLevel.Error, message);
+        log(LogLevel.Error, message);
+    }
+
+    public static void error(Supplier<String> message)
+    {
+        log(LogLevel.Error, message);
+    }
+
+    public static void error(String template, Object argument)
+    {
+        if (isEnabled(LogLevel.Error))
+        {
+            append(LogLevel.Error, format(template, argument));
+        }
+    }
+
+    public static void error(String template, Object first, Object second)
+    {
+        if (isEnabled(LogLevel.Error))
+        {
+            append(LogLevel.Error, format(template, first, second));
+        }
+    }
+
+    public static void error(String template, Object... arguments)
+    {
+        log(LogLevel.Error, template, arguments);
+    }
+
+    /**
+     * Добавляет запись указанного уровня.
+     * @param level уровень записи
+     * @param message сообщение
+     */
+    public static void log(LogLevel level, String message)
+    {
+        if (isEnabled(level))
+        {
+            append(level, message);
+        }
+    }
+
+    /**
+     * Добавляет запись указанного уровня; сообщение строится, только если запись будет сохранена.
+     * @param level уровень записи
+     * @param message построитель сообщения
+     */
+    public static void log(LogLevel level, Supplier<String> message)
+    {
+        if (isEnabled(level))
+        {
+            append(level, message.get());
+        }
+    }
+
+    /**
+     * Добавляет запись указанного уровня с сообщением по шаблону; строка собирается, только если запись
+     * будет сохранена.
+     * @param level уровень записи
+     * @param template шаблон, в котором каждое {@code {}} заменяется следующим аргументом
+     * @param arguments аргументы
+     */
+    public static void log(LogLevel level, String template, Object... arguments)
+    {
+        if (isEnabled(level))
+        {
+            append(level, format(template, arguments));
+        }
+    }
+
+    /**
+     * Проверяет, сохраняются ли записи указанного уровня в источнике по умолчанию.
+     * @param level уровень записи
+     * @return true, если записи этого уровня сохраняются
+     */
+    public static boolean isEnabled(LogLevel level)
+    {
+        return defaultLogSource.isEnabled(level);
+    }
+
+    private static void append(LogLevel logLevel, String message)
+    {
+        final AsyncLogDispatcher current = dispatcher;
+        if (current != null)
+        {
+            current.submit(new LogEntry(logLevel, message));
+        } else
+        {
+            defaultLogSource.append(logLevel, message);
+        }
+    }
+
+    /**
+     * Подставляет аргументы в шаблон. Лишние {@code {}} остаются как есть, лишние аргументы не используются.
+     */
+    static String format(String template, Object... arguments)
+    {
+        final StringBuilder result = new StringBuilder(template.length() + 16 * arguments.length);
+        int from = 0;
+        for (Object argument : arguments)
+        {
+            final int placeholder = template.indexOf("{}", from);
+            if (placeholder < 0)
+            {
+                break;
+            }
+            result.append(template, from, placeholder).append(argument);
+            from = placeholder + 2;
+        }
+        return result.append(template, from, template.length()).toString();
+    }
+
+    /**
+     * Включает асинхронный режим: вызывающий поток только ставит запись в очередь, а в источник
+     * ее добавляет фоновый поток. Если режим уже включен, прежний диспетчер закрывается.
+     * @param queueCapacity емкость очереди
+     * @param policy поведение при заполненной очереди
+     */
+    public static void enableAsync(int queueCapacity, BackpressurePolicy policy)
+    {
+        enableAsync(queueCapacity, policy, null);
+    }
+
+    /**
+     * Включает асинхронный режим с записью в файловый журнал: фоновый поток добавляет записи в источник
+     * и пишет их в {@code sink} пачками. Если режим уже включен, прежний диспетчер закрывается вместе
+     * со своим файловым журналом.
+     * @param queueCapacity емкость очереди
+     * @param policy поведение при заполненной очереди
+     * @param sink файловый журнал или null
+     */
+    public static synchronized void enableAsync(int queueCapacity, BackpressurePolicy policy, MappedLogSink sink)
+    {
+        final AsyncLogDispatcher previous = dispatcher;
+        dispatcher = new AsyncLogDispatcher(defaultLogSource, queueCapacity, policy, sink);
+        if (previous != null)
+        {
+            previous.close();
+        }
+    }
+
+    /**
+     * Выключает асинхронный режим, доставив записи, уже стоящие в очереди, и закрывает файловый журнал.
+     */
+    public static synchronized void disableAsync()
+    {
+        final AsyncLogDispatcher previous = dispatcher;
+        dispatcher = null;
+        if (previous != null)
+        {
+            previous.close();
+        }
+    }
+
+    /**
+     * Возвращает диспетчер асинхронного режима.
+     * @return диспетчер или null, если записи добавляются синхронно
+     */
+    public static AsyncLogDispatcher getDispatcher()
+    {
+        return dispatcher;
     }
 
     public static LogWindowSource getDefaultLogSource()
     {
         return defaultLogSource;
     }
-}
\ No newline at end of file
+}
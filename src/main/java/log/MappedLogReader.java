@@ -0,0 +1,288 @@
+package log;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Чтение журнала, записанного {@link MappedLogSink}, с любого смещения.
+ * <p>
+ * Читатель хранит текущее смещение: {@link #seek(long)} переходит к любой сохраненной записи,
+ * {@link #seekToEnd()} — к концу журнала, а {@link #poll(int, List)} читает записи от текущего смещения
+ * и продвигает его. Просмотр с начала — это {@code seek(getFirstOffset())} и вызовы {@code poll}, пока они
+ * что-то возвращают; слежение за хвостом — {@code seekToEnd()} и периодические вызовы {@code poll}, которые
+ * возвращают записи, добавленные с прошлого вызова. Журнал можно читать, пока в него пишут, в том числе
+ * из другого процесса: видны только записи, опубликованные писателем. Если записи, на которые указывает
+ * смещение, уже удалены, чтение продолжается с самой старой сохраненной.
+ */
+public class MappedLogReader
+{
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private final Path directory;
+    private long position;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment;
+    private long segmentOffset;
+    private int segmentPosition;
+
+    /**
+     * Открывает журнал для чтения с самой старой сохраненной записи.
+     * @param directory каталог, в который пишет {@link MappedLogSink}
+     * @throws IOException если каталог нельзя прочитать
+     */
+    public MappedLogReader(Path directory) throws IOException
+    {
+        this.directory = directory;
+        seek(0);
+    }
+
+    /**
+     * Переходит к записи с указанным смещением. Смещение может указывать и на уже удаленную,
+     * и на еще не записанную запись.
+     * @param offset смещение записи
+     * @throws IOException если сегмент нельзя прочитать
+     */
+    public void seek(long offset) throws IOException
+    {
+        if (offset < 0)
+        {
+            throw new IllegalArgumentException("offset must not be negative: " + offset);
+        }
+        position = offset;
+        segment = null;
+        segmentIndex = -1;
+        final List<Integer> indices = MappedLogSink.segmentIndices(directory);
+        MappedByteBuffer oldest = null;
+        int oldestIndex = -1;
+        for (int i = indices.size() - 1; i >= 0; i--)
+        {
+            final MappedByteBuffer candidate = open(indices.get(i));
+            if (candidate == null)
+            {
+                continue;
+            }
+            if (candidate.getLong(MappedLogSink.FIRST_OFFSET_OFFSET) <= offset)
+            {
+                enter(indices.get(i), candidate);
+                return;
+            }
+            oldest = candidate;
+            oldestIndex = indices.get(i);
+        }
+        if (oldest != null)
+        {
+            enter(oldestIndex, oldest);
+        }
+    }
+
+    /**
+     * Переходит к концу журнала: следующий {@link #poll(int, List)} вернет только новые записи.
+     * @throws IOException если сегмент нельзя прочитать
+     */
+    public void seekToEnd() throws IOException
+    {
+        seek(Long.MAX_VALUE);
+        position = segment == null ? 0 : segmentOffset;
+    }
+
+    /**
+     * Читает записи от текущего смещения и продвигает его.
+     * @param maxEntries наибольшее число записей
+     * @param into список, в который добавляются записи
+     * @return число прочитанных записей; 0, если новых записей пока нет
+     * @throws IOException если сегмент нельзя прочитать
+     */
+    public int poll(int maxEntries, List<LogEntry> into) throws IOException
+    {
+        if (segment == null)
+        {
+            seek(position);
+            if (segment == null)
+            {
+                return 0;
+            }
+        }
+        int read = 0;
+        int end = publishedEnd();
+        while (read < maxEntries)
+        {
+            if (segmentPosition < end)
+            {
+                if (segmentOffset < position)
+                {
+                    skipRecord();
+                } else
+                {
+                    into.add(readRecord());
+                    position = segmentOffset;
+                    read++;
+                }
+                continue;
+            }
+            // Писатель публикует последнюю пачку сегмента раньше, чем закрывает его, поэтому после признака
+            // закрытия конец данных перечитывается
+            final boolean sealed = segment.getInt(MappedLogSink.SEALED_OFFSET) != 0;
+            VarHandle.acquireFence();
+            end = publishedEnd();
+            if (segmentPosition < end)
+            {
+                continue;
+            }
+            if (!sealed || !advance())
+            {
+                break;
+            }
+            end = publishedEnd();
+        }
+        return read;
+    }
+
+    /**
+     * Читает конец опубликованных данных текущего сегмента; записи до него видны целиком.
+     */
+    private int publishedEnd()
+    {
+        final int end = segment.getInt(MappedLogSink.END_OFFSET);
+        VarHandle.acquireFence();
+        return end;
+    }
+
+    private void skipRecord()
+    {
+        segmentPosition += MappedLogSink.RECORD_HEADER_SIZE + segment.getInt(segmentPosition);
+        segmentOffset++;
+    }
+
+    private LogEntry readRecord()
+    {
+        final int length = segment.getInt(segmentPosition);
+        final int level = segment.get(segmentPosition + Integer.BYTES);
+        final byte[] message = new byte[length];
+        segment.get(segmentPosition + MappedLogSink.RECORD_HEADER_SIZE, message);
+        skipRecord();
+        return new LogEntry(levelOf(level), new String(message, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Переходит к сегменту, следующему за закрытым.
+     * @return false, если следующий сегмент еще не начат
+     */
+    private boolean advance() throws IOException
+    {
+        final MappedByteBuffer following = open(segmentIndex + 1);
+        if (following != null)
+        {
+            enter(segmentIndex + 1, following);
+            return true;
+        }
+        // Читатель отстал, и писатель уже удалил и текущий, и следующий сегменты
+        final List<Integer> indices = MappedLogSink.segmentIndices(directory);
+        if (indices.isEmpty() || indices.get(0) <= segmentIndex)
+        {
+            return false;
+        }
+        seek(position);
+        return segment != null;
+    }
+
+    /**
+     * Делает сегмент текущим и пропускает в нем записи до текущего смещения.
+     */
+    private void enter(int index, MappedByteBuffer candidate)
+    {
+        segmentIndex = index;
+        segment = candidate;
+        segmentOffset = candidate.getLong(MappedLogSink.FIRST_OFFSET_OFFSET);
+        segmentPosition = MappedLogSink.HEADER_SIZE;
+        position = Math.max(position, segmentOffset);
+        final int end = publishedEnd();
+        while (segmentOffset < position && segmentPosition < end)
+        {
+            skipRecord();
+        }
+    }
+
+    /**
+     * Отображает сегмент только для чтения.
+     * @return сегмент или null, если файла нет или его заголовок еще не заполнен
+     */
+    private MappedByteBuffer open(int index) throws IOException
+    {
+        final Path file = MappedLogSink.segmentFile(directory, index);
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if (channel.size() < MappedLogSink.HEADER_SIZE)
+            {
+                return null;
+            }
+            final MappedByteBuffer candidate = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            candidate.order(ByteOrder.LITTLE_ENDIAN);
+            if (candidate.getInt(0) != MappedLogSink.MAGIC)
+            {
+                return null;
+            }
+            VarHandle.acquireFence();
+            if (candidate.getInt(4) != MappedLogSink.VERSION)
+            {
+                throw new IOException("Unsupported log segment version: " + file);
+            }
+            return candidate;
+        } catch (NoSuchFileException e)
+        {
+            // Сегмент удален писателем между проверкой и открытием
+            return null;
+        }
+    }
+
+    private static LogLevel levelOf(int level)
+    {
+        for (LogLevel candidate : LEVELS)
+        {
+            if (candidate.getLevel() == level)
+            {
+                return candidate;
+            }
+        }
+        return LogLevel.Trace;
+    }
+
+    /**
+     * Возвращает смещение самой старой сохраненной записи.
+     * @return смещение или 0, если журнал пуст
+     * @throws IOException если сегмент нельзя прочитать
+     */
+    public long getFirstOffset() throws IOException
+    {
+        for (int index : MappedLogSink.segmentIndices(directory))
+        {
+            final MappedByteBuffer candidate = open(index);
+            if (candidate != null)
+            {
+                return candidate.getLong(MappedLogSink.FIRST_OFFSET_OFFSET);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Возвращает текущее смещение: смещение записи, которую вернет следующий {@link #poll(int, List)}.
+     * @return смещение
+     */
+    public long getPosition()
+    {
+        return position;
+    }
+}
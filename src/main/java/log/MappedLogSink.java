@@ -0,0 +1,388 @@
+package log;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Журнал в отображаемых в память файлах-сегментах.
+ * <p>
+ * Записи получают сквозные порядковые номера (смещения) и пишутся подряд: длина сообщения в байтах,
+ * уровень и сообщение в UTF-8. Сегмент имеет фиксированный размер и начинается с заголовка
+ * ({@link #HEADER_SIZE} байт): сигнатура, версия, смещение первой записи, число записей, конец записанных
+ * данных и признак закрытого сегмента. Заголовок обновляется один раз на пачку, после самих записей, поэтому
+ * читатель видит только целые записи. Когда очередная запись не помещается, сегмент закрывается и запись
+ * продолжается в следующем; хранится не больше {@code maxSegments} последних сегментов.
+ * <p>
+ * Запись пачки — это копирование байтов в отображенную память без системных вызовов. Следующий сегмент
+ * заранее создается и отображается, а закрытый сбрасывается на диск и устаревшие удаляются фоновым потоком.
+ * Писать должен один поток; в приложении это поток {@link AsyncLogDispatcher}, так что потоки, добавляющие
+ * записи, с файлами не работают вовсе. При повторном открытии каталога запись продолжается после уже
+ * сохраненных сегментов. Файлы читает {@link MappedLogReader}.
+ */
+public class MappedLogSink implements AutoCloseable
+{
+    public static final int DEFAULT_SEGMENT_BYTES = 4 << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+    static final int MIN_SEGMENT_BYTES = 4096;
+    static final int MAGIC = 0x4C4F4731;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int FIRST_OFFSET_OFFSET = 8;
+    static final int COUNT_OFFSET = 16;
+    static final int END_OFFSET = 20;
+    static final int SEALED_OFFSET = 24;
+    static final int RECORD_HEADER_SIZE = Integer.BYTES + 1;
+    static final String SEGMENT_FORMAT = "log-%08d.seg";
+    static final Pattern SEGMENT_NAME = Pattern.compile("log-(\\d{8,})\\.seg");
+    private static final java.util.logging.Logger logger =
+            java.util.logging.Logger.getLogger(MappedLogSink.class.getName());
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final ExecutorService mapper;
+
+    private int segmentIndex;
+    private long nextOffset;
+    private MappedByteBuffer segment;
+    private int count;
+    private Future<MappedByteBuffer> nextSegment;
+    private boolean closed;
+
+    /**
+     * Открывает журнал с размером сегмента и числом хранимых сегментов по умолчанию.
+     * @param directory каталог для сегментов; создается при необходимости
+     * @throws IOException если каталог нельзя создать или прочитать
+     */
+    public MappedLogSink(Path directory) throws IOException
+    {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Открывает журнал в указанном каталоге.
+     * @param directory каталог для сегментов; создается при необходимости
+     * @param segmentBytes размер файла сегмента в байтах
+     * @param maxSegments наибольшее число хранимых сегментов, включая текущий
+     * @throws IOException если каталог нельзя создать или прочитать
+     */
+    public MappedLogSink(Path directory, int segmentBytes, int maxSegments) throws IOException
+    {
+        if (segmentBytes < MIN_SEGMENT_BYTES || maxSegments < 1)
+        {
+            throw new IllegalArgumentException("segmentBytes must be at least " + MIN_SEGMENT_BYTES
+                    + " and maxSegments must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.mapper = Executors.newSingleThreadExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "log segment mapper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        resume();
+    }
+
+    /**
+     * Находит последний сохраненный сегмент, закрывает его и продолжает нумерацию сегментов и записей после него.
+     * Заранее созданные, но так и не начатые сегменты удаляются.
+     */
+    private void resume() throws IOException
+    {
+        segmentIndex = -1;
+        nextOffset = 0;
+        final List<Integer> indices = segmentIndices(directory);
+        for (int i = indices.size() - 1; i >= 0 && segmentIndex < 0; i--)
+        {
+            final Path file = segmentFile(directory, indices.get(i));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                if (channel.size() >= HEADER_SIZE)
+                {
+                    final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                    header.order(ByteOrder.LITTLE_ENDIAN);
+                    if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION)
+                    {
+                        header.putInt(SEALED_OFFSET, 1);
+                        segmentIndex = indices.get(i);
+                        nextOffset = header.getLong(FIRST_OFFSET_OFFSET) + header.getInt(COUNT_OFFSET);
+                        continue;
+                    }
+                }
+            }
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Записывает пачку записей и публикует их читателям одним обновлением заголовка.
+     * @param entries записи
+     * @throws IOException если не удалось отобразить очередной сегмент
+     */
+    public void append(List<LogEntry> entries) throws IOException
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Log sink is closed");
+        }
+        for (LogEntry entry : entries)
+        {
+            write(entry);
+        }
+        publish();
+    }
+
+    /**
+     * Записывает одну запись и публикует ее.
+     * @param entry запись
+     * @throws IOException если не удалось отобразить очередной сегмент
+     */
+    public void append(LogEntry entry) throws IOException
+    {
+        append(List.of(entry));
+    }
+
+    /**
+     * Копирует запись в текущий сегмент, при необходимости переходя к следующему.
+     * Сообщение, которое не помещается даже в пустой сегмент, обрезается.
+     */
+    private void write(LogEntry entry) throws IOException
+    {
+        final byte[] message = entry.getMessage() == null
+                ? new byte[0]
+                : entry.getMessage().getBytes(StandardCharsets.UTF_8);
+        final int length = Math.min(message.length, segmentBytes - HEADER_SIZE - RECORD_HEADER_SIZE);
+        if (segment == null || segment.position() + RECORD_HEADER_SIZE + length > segmentBytes)
+        {
+            switchSegment();
+        }
+        segment.putInt(length);
+        segment.put((byte) entry.getLevel().getLevel());
+        segment.put(message, 0, length);
+        count++;
+    }
+
+    /**
+     * Делает записанные данные видимыми читателям: сначала число записей, затем конец данных.
+     */
+    private void publish()
+    {
+        if (segment != null)
+        {
+            segment.putInt(COUNT_OFFSET, count);
+            VarHandle.releaseFence();
+            segment.putInt(END_OFFSET, segment.position());
+        }
+    }
+
+    /**
+     * Закрывает текущий сегмент, переходит к заранее отображенному следующему и заказывает фоновому потоку
+     * сброс закрытого сегмента, удаление устаревших и отображение сегмента после следующего.
+     * Состояние меняется только после того, как следующий сегмент получен: если его не удалось отобразить,
+     * текущий сегмент остается открытым, и переход повторится при следующей записи.
+     */
+    private void switchSegment() throws IOException
+    {
+        final MappedByteBuffer mapped = nextMapped(segmentIndex + 1);
+        final MappedByteBuffer previous = segment;
+        if (previous != null)
+        {
+            publish();
+            VarHandle.releaseFence();
+            previous.putInt(SEALED_OFFSET, 1);
+            nextOffset += count;
+        }
+        segmentIndex++;
+        segment = mapped;
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putLong(FIRST_OFFSET_OFFSET, nextOffset);
+        segment.putInt(COUNT_OFFSET, 0);
+        segment.putInt(END_OFFSET, HEADER_SIZE);
+        segment.putInt(SEALED_OFFSET, 0);
+        segment.putInt(4, VERSION);
+        // Сигнатура пишется последней: читатель не примет сегмент с незаполненным заголовком
+        VarHandle.releaseFence();
+        segment.putInt(0, MAGIC);
+        segment.position(HEADER_SIZE);
+        count = 0;
+        final int following = segmentIndex + 1;
+        final int expired = segmentIndex - maxSegments;
+        nextSegment = mapper.submit(() ->
+        {
+            if (previous != null)
+            {
+                previous.force();
+            }
+            deleteUpTo(expired);
+            return map(following);
+        });
+    }
+
+    /**
+     * Возвращает заранее отображенный фоновым потоком сегмент. Если фоновое отображение не удалось,
+     * сегмент отображается синхронно.
+     */
+    private MappedByteBuffer nextMapped(int index) throws IOException
+    {
+        final Future<MappedByteBuffer> pending = nextSegment;
+        if (pending != null)
+        {
+            try
+            {
+                final MappedByteBuffer mapped = pending.get();
+                nextSegment = null;
+                return mapped;
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while mapping a log segment", e);
+            } catch (ExecutionException e)
+            {
+                nextSegment = null;
+                logger.log(Level.WARNING, "Не удалось заранее отобразить сегмент журнала: " + e.getCause());
+            }
+        }
+        return map(index);
+    }
+
+    /**
+     * Создает файл сегмента нужного размера и отображает его в память.
+     */
+    private MappedByteBuffer map(int index) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(segmentFile(directory, index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    /**
+     * Удаляет сегменты с номерами не больше указанного.
+     */
+    private void deleteUpTo(int index) throws IOException
+    {
+        for (int existing : segmentIndices(directory))
+        {
+            if (existing > index)
+            {
+                break;
+            }
+            try
+            {
+                Files.deleteIfExists(segmentFile(directory, existing));
+            } catch (IOException e)
+            {
+                // Файл может быть занят читателем; он будет удален при следующей смене сегмента
+                logger.log(Level.WARNING, "Не удалось удалить сегмент журнала: " + e);
+            }
+        }
+    }
+
+    private static MappedByteBuffer await(Future<MappedByteBuffer> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while mapping a log segment", e);
+        } catch (ExecutionException e)
+        {
+            throw new IOException("Cannot map a log segment", e.getCause());
+        }
+    }
+
+    /**
+     * Возвращает номера сегментов в каталоге по возрастанию.
+     */
+    static List<Integer> segmentIndices(Path directory) throws IOException
+    {
+        final List<Integer> indices = new ArrayList<>();
+        if (!Files.isDirectory(directory))
+        {
+            return indices;
+        }
+        try (Stream<Path> files = Files.list(directory))
+        {
+            files.forEach(file ->
+            {
+                final Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches())
+                {
+                    indices.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        indices.sort(null);
+        return indices;
+    }
+
+    static Path segmentFile(Path directory, int index)
+    {
+        return directory.resolve(String.format(SEGMENT_FORMAT, index));
+    }
+
+    /**
+     * Возвращает смещение, которое получит следующая запись.
+     * @return смещение следующей записи
+     */
+    public long getNextOffset()
+    {
+        return nextOffset + count;
+    }
+
+    /**
+     * Возвращает каталог журнала.
+     * @return каталог
+     */
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Сбрасывает записанные данные на диск и останавливает фоновый поток.
+     * Заранее созданный пустой сегмент удаляется.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        if (segment != null)
+        {
+            publish();
+            segment.force();
+        }
+        mapper.shutdown();
+        if (nextSegment != null)
+        {
+            await(nextSegment);
+            Files.deleteIfExists(segmentFile(directory, segmentIndex + 1));
+        }
+    }
+}
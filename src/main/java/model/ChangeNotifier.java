@@ -0,0 +1,152 @@
+package model;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import log.Logger;
+
+/**
+ * Рассылает подписчикам уведомления об изменениях симуляции с ограничением частоты.
+ * <p>
+ * Поток симуляции ничего не делает для рассылки: он только публикует кадры в {@link WorldSnapshotBuffer}.
+ * Общий для всех экземпляров поток-диспетчер с частотой, заявленной подписчиком, проверяет номер публикации
+ * и, если он изменился, передает доставку исполнителю подписчика. Все изменения между проверками сливаются
+ * в одно уведомление с последним кадром. Пока предыдущая доставка не завершилась, новая не назначается,
+ * поэтому медленный подписчик не накапливает очередь и не влияет на других.
+ */
+public class ChangeNotifier
+{
+    private static final ScheduledExecutorService DISPATCHER = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "simulation notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final WorldSnapshotBuffer snapshots;
+
+    /**
+     * Создает рассылку по кадрам указанного буфера.
+     * @param snapshots буфер кадров состояния мира
+     */
+    public ChangeNotifier(WorldSnapshotBuffer snapshots)
+    {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Подписывает слушателя на изменения.
+     * @param listener слушатель
+     * @param maxRate наибольшее число уведомлений в секунду
+     * @param executor исполнитель, на котором вызывается слушатель, например {@code EventQueue::invokeLater}
+     * @return подписка, которую нужно отменить, когда уведомления больше не нужны
+     */
+    public Subscription subscribe(SimulationListener listener, double maxRate, Executor executor)
+    {
+        if (!(maxRate > 0))
+        {
+            throw new IllegalArgumentException("maxRate must be positive: " + maxRate);
+        }
+        final long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / maxRate));
+        final Subscription subscription = new Subscription(listener, executor);
+        subscription.future = DISPATCHER.scheduleAtFixedRate(subscription::check, 0, periodNanos, TimeUnit.NANOSECONDS);
+        return subscription;
+    }
+
+    /**
+     * Подписка на изменения симуляции.
+     */
+    public final class Subscription implements AutoCloseable
+    {
+        private final SimulationListener listener;
+        private final Executor executor;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+        private long deliveredVersion = -1;
+        private volatile long deliveredCount;
+
+        private Subscription(SimulationListener listener, Executor executor)
+        {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        /**
+         * Проверяет, были ли изменения с прошлой доставки, и назначает новую. Выполняется на потоке-диспетчере.
+         */
+        private void check()
+        {
+            final long version = snapshots.getVersion();
+            if (cancelled || version == deliveredVersion || !inFlight.compareAndSet(false, true))
+            {
+                return;
+            }
+            deliveredVersion = version;
+            try
+            {
+                executor.execute(this::deliver);
+            } catch (RuntimeException e)
+            {
+                inFlight.set(false);
+                Logger.error("Не удалось назначить уведомление подписчику: " + e);
+            }
+        }
+
+        /**
+         * Вызывает слушателя с текущим кадром. Выполняется на исполнителе подписчика.
+         */
+        private void deliver()
+        {
+            try (WorldSnapshot snapshot = snapshots.acquire())
+            {
+                if (!cancelled)
+                {
+                    listener.onSimulationChanged(snapshot);
+                    deliveredCount++;
+                }
+            } catch (RuntimeException e)
+            {
+                Logger.error("Ошибка подписчика симуляции: " + e);
+            } finally
+            {
+                inFlight.set(false);
+            }
+        }
+
+        /**
+         * Возвращает число доставленных уведомлений.
+         * @return число уведомлений
+         */
+        public long getDeliveredCount()
+        {
+            return deliveredCount;
+        }
+
+        /**
+         * Отменяет подписку. Уже начатая доставка завершается, новые не назначаются.
+         */
+        public void cancel()
+        {
+            cancelled = true;
+            final ScheduledFuture<?> scheduled = future;
+            if (scheduled != null)
+            {
+                scheduled.cancel(false);
+            }
+        }
+
+        /**
+         * Отменяет подписку.
+         */
+        @Override
+        public void close()
+        {
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Контрольная точка всего мира в компактном двоичном формате.
+ * <p>
+ * Файл начинается с заголовка ({@link #HEADER_SIZE} байт): сигнатура, версия, номер шага, границы окна,
+ * тригонометрия шага, число роботов и общее число путевых точек. Далее в порядке little-endian идут
+ * столбцы состояния парка, число путевых точек каждого робота и координаты всех точек подряд.
+ * С версии 2 файл заканчивается настройками столкновений и препятствиями ({@link #COLLISIONS_SIZE} байт
+ * и по четыре числа на препятствие).
+ * Столбцы читаются и пишутся целиком, поэтому восстановление сводится к нескольким копированиям памяти.
+ * Сохраняет контрольную точку {@link RobotsLogic#saveCheckpoint(Path)}.
+ */
+public final class Checkpoint
+{
+    static final int MAGIC = 0x52434B50;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 48;
+    static final int MATH_EXACT = 0;
+    static final int MATH_FAST = 1;
+    static final int COLLISIONS_SIZE = 16;
+    private static final int COLUMNS = 6;
+    private static final int BOX = 4;
+
+    private Checkpoint()
+    {
+    }
+
+    /**
+     * Записывает состояние мира во временный файл и атомарно заменяет им указанный файл.
+     * @param file файл контрольной точки
+     * @param fleet парк роботов; не должен меняться во время записи
+     * @param collisions препятствия и настройки столкновений; не должны меняться во время записи
+     * @param tick номер шага
+     * @param boundsX ширина окна
+     * @param boundsY высота окна
+     * @throws IOException если файл не удалось записать
+     */
+    static void write(Path file, RobotFleet fleet, CollisionSystem collisions, long tick, double boundsX, double boundsY)
+            throws IOException
+    {
+        final int size = fleet.size();
+        long waypointTotal = 0;
+        for (int i = 0; i < size; i++)
+        {
+            waypointTotal += fleet.getWaypointCount(i);
+        }
+        final List<Obstacle> obstacles = collisions.getObstacles();
+        final long length = fileLength(VERSION, size, waypointTotal, obstacles.size());
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new IOException("Checkpoint is too large: " + length + " bytes");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(tick)
+                .putDouble(boundsX)
+                .putDouble(boundsY)
+                .putInt(fleet.getMathBackend() == MathBackend.FAST ? MATH_FAST : MATH_EXACT)
+                .putInt(size)
+                .putLong(waypointTotal);
+
+        fleet.exportColumns(buffer.slice(HEADER_SIZE, COLUMNS * size * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+        final int countsOffset = HEADER_SIZE + COLUMNS * size * Double.BYTES;
+        final int waypointsOffset = (int) align(countsOffset + (long) size * Integer.BYTES);
+        final IntBuffer counts = buffer.slice(countsOffset, size * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        final DoubleBuffer waypoints = buffer.slice(waypointsOffset, (int) (2 * waypointTotal * Double.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        for (int i = 0; i < size; i++)
+        {
+            final int count = fleet.getWaypointCount(i);
+            counts.put(count);
+            if (count > 0)
+            {
+                waypoints.put(fleet.getWaypoints(i));
+            }
+        }
+        buffer.position(waypointsOffset + (int) (2 * waypointTotal * Double.BYTES))
+                .putInt(collisions.isRobotCollisionsEnabled() ? 1 : 0)
+                .putInt(obstacles.size())
+                .putDouble(collisions.getRobotRadius());
+        for (Obstacle obstacle : obstacles)
+        {
+            buffer.putDouble(obstacle.getMinX())
+                    .putDouble(obstacle.getMinY())
+                    .putDouble(obstacle.getMaxX())
+                    .putDouble(obstacle.getMaxY());
+        }
+        buffer.clear();
+
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+            {
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Восстанавливает мир из контрольной точки. Планировщик восстановленной логики не запущен.
+     * @param file файл контрольной точки
+     * @return логика роботов в сохраненном состоянии
+     * @throws IOException если файл не читается или поврежден
+     */
+    public static RobotsLogic restore(Path file) throws IOException
+    {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_SIZE)
+            {
+                throw new IOException("Not a simulation checkpoint: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC)
+        {
+            throw new IOException("Not a simulation checkpoint: " + file);
+        }
+        final int version = buffer.getInt();
+        if (version < 1 || version > VERSION)
+        {
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        final long tick = buffer.getLong();
+        final double boundsX = buffer.getDouble();
+        final double boundsY = buffer.getDouble();
+        final int mathCode = buffer.getInt();
+        final int size = buffer.getInt();
+        final long waypointTotal = buffer.getLong();
+        final MathBackend math = switch (mathCode)
+        {
+            case MATH_EXACT -> MathBackend.EXACT;
+            case MATH_FAST -> MathBackend.FAST;
+            default -> throw new IOException("Unknown math backend " + mathCode);
+        };
+        final long waypointsEnd = fileLength(1, size, waypointTotal, 0);
+        if (size < 0 || waypointTotal < 0 || waypointsEnd > buffer.capacity())
+        {
+            throw new IOException("Checkpoint is truncated or corrupted: " + file);
+        }
+        final CollisionSystem collisions = version >= 2 ? readCollisions(buffer, (int) waypointsEnd) : null;
+        if (fileLength(version, size, waypointTotal, collisions == null ? 0 : collisions.getObstacles().size())
+                != buffer.capacity())
+        {
+            throw new IOException("Checkpoint is truncated or corrupted: " + file);
+        }
+
+        final RobotFleet fleet = new RobotFleet(Math.max(size, 1));
+        fleet.setMathBackend(math);
+        fleet.importColumns(buffer.slice(HEADER_SIZE, COLUMNS * size * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer(), size);
+        if (waypointTotal > 0)
+        {
+            final int countsOffset = HEADER_SIZE + COLUMNS * size * Double.BYTES;
+            final int waypointsOffset = (int) align(countsOffset + (long) size * Integer.BYTES);
+            final IntBuffer counts = buffer.slice(countsOffset, size * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            final DoubleBuffer waypoints = buffer.slice(waypointsOffset, (int) (waypointsEnd - waypointsOffset))
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            double[] coordinates = new double[0];
+            for (int i = 0; i < size; i++)
+            {
+                final int count = counts.get(i);
+                if (count < 0 || 2L * count > waypoints.remaining())
+                {
+                    throw new IOException("Checkpoint is truncated or corrupted: " + file);
+                }
+                if (count > 0)
+                {
+                    if (coordinates.length < 2 * count)
+                    {
+                        coordinates = new double[2 * count];
+                    }
+                    waypoints.get(coordinates, 0, 2 * count);
+                    fleet.addWaypoints(i, coordinates, 0, count);
+                }
+            }
+        }
+
+        final RobotsLogic logic = new RobotsLogic(fleet);
+        logic.applyWindowBounds(boundsX, boundsY);
+        if (collisions != null)
+        {
+            logic.applyCollisions(collisions.isRobotCollisionsEnabled(), collisions.getRobotRadius());
+            for (Obstacle obstacle : collisions.getObstacles())
+            {
+                logic.applyObstacle(obstacle);
+            }
+        }
+        logic.setTickCount(tick);
+        return logic;
+    }
+
+    /**
+     * Читает настройки столкновений и препятствия, начиная с указанного смещения.
+     */
+    private static CollisionSystem readCollisions(ByteBuffer buffer, int offset) throws IOException
+    {
+        if (offset + COLLISIONS_SIZE > buffer.capacity())
+        {
+            throw new IOException("Checkpoint is truncated");
+        }
+        buffer.position(offset);
+        final boolean robotCollisions = buffer.getInt() != 0;
+        final int count = buffer.getInt();
+        final double robotRadius = buffer.getDouble();
+        if (count < 0 || !(robotRadius > 0) || (long) count * BOX * Double.BYTES > buffer.remaining())
+        {
+            throw new IOException("Checkpoint is truncated or corrupted");
+        }
+        final CollisionSystem collisions = new CollisionSystem(robotRadius);
+        collisions.setRobotCollisionsEnabled(robotCollisions);
+        for (int k = 0; k < count; k++)
+        {
+            collisions.addObstacle(new Obstacle(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                    buffer.getDouble()));
+        }
+        return collisions;
+    }
+
+    private static long fileLength(int version, int size, long waypointTotal, int obstacleCount)
+    {
+        final long length = align(HEADER_SIZE + (long) COLUMNS * size * Double.BYTES + (long) size * Integer.BYTES)
+                + 2 * waypointTotal * Double.BYTES;
+        return version < 2 ? length : length + COLLISIONS_SIZE + (long) obstacleCount * BOX * Double.BYTES;
+    }
+
+    private static long align(long offset)
+    {
+        return (offset + Double.BYTES - 1) & -Double.BYTES;
+    }
+}
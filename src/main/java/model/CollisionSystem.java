@@ -0,0 +1,611 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Обработка столкновений роботов друг с другом и с неподвижными препятствиями.
+ * <p>
+ * Роботы считаются кругами одного радиуса. Широкая фаза хранит всех роботов в равномерной сетке
+ * ({@link SpatialGrid}) с ячейкой не меньше диаметра робота и каждый шаг переносит в нее только роботов,
+ * пройденных шагом парка ({@link RobotFleet#steppedSlots()}): остальные не двигались с прошлой проверки.
+ * Пересечение, оставшееся после шага, всегда затрагивает хотя бы одного сдвинувшегося робота (раздвинутые
+ * и вытолкнутые роботы возвращаются в активное множество парка), поэтому пары ищутся только вокруг
+ * сдвинувшихся роботов. Найденные пары обрабатываются в порядке номеров слотов, так что результат не зависит
+ * от того, проверялся ли весь парк или только сдвинувшиеся роботы. Пересекающиеся роботы раздвигаются поровну
+ * вдоль линии центров. Весь парк проверяется, когда сетку приходится строить заново: при включении столкновений,
+ * смене радиуса, границ или парка.
+ * <p>
+ * Препятствия раскладываются по собственной сетке с учетом радиуса робота только при изменении набора
+ * препятствий или границ, поэтому для каждого робота проверяются лишь препятствия его ячейки. Проверяются
+ * роботы, пройденные шагом, и раздвинутые на этом шаге; весь парк — после изменения препятствий или границ.
+ * Робот, пересекший препятствие, выталкивается к ближайшей точке вне его.
+ * <p>
+ * Обработка детерминирована и выполняется на потоке симуляции; класс не потокобезопасен.
+ * Рабочие массивы переиспользуются между шагами, поэтому шаг без роста парка не создает объектов.
+ */
+public class CollisionSystem
+{
+    public static final double DEFAULT_ROBOT_RADIUS = 5;
+    private static final int MAX_CELLS_PER_ROBOT = 4;
+    private static final int OBSTACLE_GRID_SIDE = 64;
+    private static final int BOX = 4;
+
+    private final List<Obstacle> obstacles = new ArrayList<>();
+    private double robotRadius;
+    private boolean robotCollisions = true;
+    private int version;
+
+    private SpatialGrid robotGrid;
+    private RobotFleet gridFleet;
+    private int gridSize;
+    private double gridBoundsX;
+    private double gridBoundsY;
+    private double gridDiameter;
+    private int[] candidateStamp = new int[0];
+    private int candidateMark;
+    private long[] pairs = new long[16];
+    private int pairCount;
+    private int querySlot;
+    private final IntConsumer collectPair = this::collectPair;
+
+    private boolean obstacleGridValid;
+    private RobotFleet obstacleFleet;
+    private int obstacleFleetSize;
+    private int[] checkedStamp = new int[0];
+    private int checkedMark;
+    private double obstacleBoundsX;
+    private double obstacleBoundsY;
+    private int obstacleColumns;
+    private int obstacleRows;
+    private double obstacleCellSize;
+    private int[] obstacleCellStart = new int[2];
+    private int[] obstacleCellItems = new int[0];
+    private double[] boxes = new double[0];
+
+    /**
+     * Создает обработчик столкновений с радиусом робота по умолчанию.
+     */
+    public CollisionSystem()
+    {
+        this(DEFAULT_ROBOT_RADIUS);
+    }
+
+    /**
+     * Создает обработчик столкновений.
+     * @param robotRadius радиус робота
+     */
+    public CollisionSystem(double robotRadius)
+    {
+        setRobotRadius(robotRadius);
+    }
+
+    /**
+     * Разрешает столкновения после шага симуляции. Вызывается после каждого шага парка: проверяются роботы,
+     * пройденные этим шагом.
+     * @param fleet парк роботов
+     * @param boundsX ширина области
+     * @param boundsY высота области
+     * @return число обработанных пересечений
+     */
+    public int resolve(RobotFleet fleet, double boundsX, double boundsY)
+    {
+        int contacts = 0;
+        pairCount = 0;
+        if (robotCollisions && fleet.size() > 1)
+        {
+            contacts += resolveRobots(fleet, boundsX, boundsY);
+        } else
+        {
+            robotGrid = null;
+        }
+        if (!obstacles.isEmpty())
+        {
+            contacts += resolveObstacles(fleet, boundsX, boundsY);
+        }
+        return contacts;
+    }
+
+    /**
+     * Переносит в сетку сдвинувшихся роботов, находит пересекающиеся пары вокруг них и раздвигает пары
+     * в порядке номеров слотов.
+     */
+    private int resolveRobots(RobotFleet fleet, double boundsX, double boundsY)
+    {
+        final int size = fleet.size();
+        final double diameter = 2 * robotRadius;
+        if (++candidateMark == 0)
+        {
+            Arrays.fill(candidateStamp, 0);
+            candidateMark = 1;
+        }
+        if (candidateStamp.length < size)
+        {
+            candidateStamp = Arrays.copyOf(candidateStamp, Math.max(size, 2 * candidateStamp.length));
+        }
+
+        final boolean all = robotGrid == null || fleet != gridFleet || size < gridSize || size > 2 * gridSize
+                || boundsX != gridBoundsX || boundsY != gridBoundsY || diameter != gridDiameter;
+        if (all)
+        {
+            rebuildRobotGrid(fleet, boundsX, boundsY, diameter);
+            for (int i = 0; i < size; i++)
+            {
+                candidateStamp[i] = candidateMark;
+            }
+            for (int i = 0; i < size; i++)
+            {
+                findPairs(fleet, i, diameter);
+            }
+        } else
+        {
+            final int[] stepped = fleet.steppedSlots();
+            final int steppedCount = fleet.getSteppedCount();
+            for (int k = 0; k < steppedCount; k++)
+            {
+                final int slot = stepped[k];
+                robotGrid.update(slot, fleet.getX(slot), fleet.getY(slot));
+                candidateStamp[slot] = candidateMark;
+            }
+            for (int k = 0; k < steppedCount; k++)
+            {
+                findPairs(fleet, stepped[k], diameter);
+            }
+        }
+
+        sortPairs(pairs, pairCount);
+        int contacts = 0;
+        final double diameterSquared = diameter * diameter;
+        for (int p = 0; p < pairCount; p++)
+        {
+            contacts += separate(fleet, (int) (pairs[p] >>> 32), (int) pairs[p], diameter, diameterSquared);
+        }
+        return contacts;
+    }
+
+    /**
+     * Строит сетку роботов заново по текущим позициям всего парка.
+     */
+    private void rebuildRobotGrid(RobotFleet fleet, double boundsX, double boundsY, double diameter)
+    {
+        final int size = fleet.size();
+        // Ячеек не больше MAX_CELLS_PER_ROBOT на робота, чтобы малый парк на большой области не требовал огромной сетки
+        final double cellSize = Math.max(diameter,
+                Math.sqrt(Math.max(boundsX, 1) * Math.max(boundsY, 1) / (MAX_CELLS_PER_ROBOT * size)));
+        robotGrid = new SpatialGrid(boundsX, boundsY, cellSize);
+        for (int i = 0; i < size; i++)
+        {
+            robotGrid.update(i, fleet.getX(i), fleet.getY(i));
+        }
+        gridFleet = fleet;
+        gridSize = size;
+        gridBoundsX = boundsX;
+        gridBoundsY = boundsY;
+        gridDiameter = diameter;
+    }
+
+    /**
+     * Добавляет в список пары робота с пересекающими его роботами. Пара двух проверяемых роботов
+     * добавляется один раз, со стороны меньшего слота.
+     */
+    private void findPairs(RobotFleet fleet, int slot, double diameter)
+    {
+        querySlot = slot;
+        robotGrid.forEachWithin(fleet.getX(slot), fleet.getY(slot), diameter, collectPair);
+    }
+
+    private void collectPair(int other)
+    {
+        final int slot = querySlot;
+        if (other == slot || other < slot && candidateStamp[other] == candidateMark)
+        {
+            return;
+        }
+        if (pairCount == pairs.length)
+        {
+            pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+        }
+        final int first = Math.min(slot, other);
+        final int second = Math.max(slot, other);
+        pairs[pairCount++] = (long) first << 32 | second;
+    }
+
+    /**
+     * Упорядочивает пары по возрастанию пирамидальной сортировкой: она не создает объектов.
+     */
+    private static void sortPairs(long[] values, int count)
+    {
+        for (int i = count / 2 - 1; i >= 0; i--)
+        {
+            siftDown(values, i, count);
+        }
+        for (int end = count - 1; end > 0; end--)
+        {
+            final long top = values[0];
+            values[0] = values[end];
+            values[end] = top;
+            siftDown(values, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] values, int index, int count)
+    {
+        final long value = values[index];
+        int i = index;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= count)
+            {
+                break;
+            }
+            if (child + 1 < count && values[child + 1] > values[child])
+            {
+                child++;
+            }
+            if (values[child] <= value)
+            {
+                break;
+            }
+            values[i] = values[child];
+            i = child;
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Раздвигает двух роботов, если они пересекаются.
+     * @return 1, если роботы пересекались, иначе 0
+     */
+    private static int separate(RobotFleet fleet, int first, int second, double diameter, double diameterSquared)
+    {
+        final double dx = fleet.getX(second) - fleet.getX(first);
+        final double dy = fleet.getY(second) - fleet.getY(first);
+        final double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared >= diameterSquared)
+        {
+            return 0;
+        }
+        final double distance = Math.sqrt(distanceSquared);
+        if (distance == 0)
+        {
+            // Центры совпадают: роботы расходятся вдоль оси x
+            final double half = diameter / 2;
+            fleet.move(first, -half, 0);
+            fleet.move(second, half, 0);
+            return 1;
+        }
+        final double push = (diameter - distance) / (2 * distance);
+        fleet.move(first, -dx * push, -dy * push);
+        fleet.move(second, dx * push, dy * push);
+        return 1;
+    }
+
+    /**
+     * Выталкивает роботов из препятствий: после изменения препятствий, границ или парка — всех,
+     * иначе только пройденных шагом и раздвинутых на этом шаге.
+     */
+    private int resolveObstacles(RobotFleet fleet, double boundsX, double boundsY)
+    {
+        final int size = fleet.size();
+        boolean all = fleet != obstacleFleet || size < obstacleFleetSize;
+        if (!obstacleGridValid || boundsX != obstacleBoundsX || boundsY != obstacleBoundsY)
+        {
+            rebuildObstacleGrid(boundsX, boundsY);
+            all = true;
+        }
+        obstacleFleet = fleet;
+        obstacleFleetSize = size;
+        int contacts = 0;
+        if (all)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                contacts += pushOut(fleet, i);
+            }
+            return contacts;
+        }
+        if (++checkedMark == 0)
+        {
+            Arrays.fill(checkedStamp, 0);
+            checkedMark = 1;
+        }
+        if (checkedStamp.length < size)
+        {
+            checkedStamp = Arrays.copyOf(checkedStamp, Math.max(size, 2 * checkedStamp.length));
+        }
+        final int[] stepped = fleet.steppedSlots();
+        final int steppedCount = fleet.getSteppedCount();
+        for (int k = 0; k < steppedCount; k++)
+        {
+            contacts += pushOutOnce(fleet, stepped[k]);
+        }
+        for (int p = 0; p < pairCount; p++)
+        {
+            contacts += pushOutOnce(fleet, (int) (pairs[p] >>> 32));
+            contacts += pushOutOnce(fleet, (int) pairs[p]);
+        }
+        return contacts;
+    }
+
+    /**
+     * Выталкивает робота из препятствий, если на этом шаге он еще не проверялся.
+     */
+    private int pushOutOnce(RobotFleet fleet, int slot)
+    {
+        if (checkedStamp[slot] == checkedMark)
+        {
+            return 0;
+        }
+        checkedStamp[slot] = checkedMark;
+        return pushOut(fleet, slot);
+    }
+
+    /**
+     * Выталкивает робота из препятствий его ячейки.
+     */
+    private int pushOut(RobotFleet fleet, int slot)
+    {
+        final int cell = cell(fleet.getX(slot), fleet.getY(slot), obstacleCellSize, obstacleColumns, obstacleRows);
+        int contacts = 0;
+        for (int k = obstacleCellStart[cell]; k < obstacleCellStart[cell + 1]; k++)
+        {
+            contacts += pushOut(fleet, slot, obstacleCellItems[k] * BOX);
+        }
+        return contacts;
+    }
+
+    /**
+     * Выталкивает робота из прямоугольника, если они пересекаются.
+     * @return 1, если робот пересекал препятствие, иначе 0
+     */
+    private int pushOut(RobotFleet fleet, int slot, int box)
+    {
+        final double minX = boxes[box];
+        final double minY = boxes[box + 1];
+        final double maxX = boxes[box + 2];
+        final double maxY = boxes[box + 3];
+        final double x = fleet.getX(slot);
+        final double y = fleet.getY(slot);
+        final double dx = x - Math.max(minX, Math.min(x, maxX));
+        final double dy = y - Math.max(minY, Math.min(y, maxY));
+        final double distanceSquared = dx * dx + dy * dy;
+        if (distanceSquared >= robotRadius * robotRadius)
+        {
+            return 0;
+        }
+        if (distanceSquared > 0)
+        {
+            final double distance = Math.sqrt(distanceSquared);
+            final double push = (robotRadius - distance) / distance;
+            fleet.move(slot, dx * push, dy * push);
+            return 1;
+        }
+        // Центр внутри препятствия: робот выходит через ближайшую сторону
+        final double left = x - minX;
+        final double right = maxX - x;
+        final double top = y - minY;
+        final double bottom = maxY - y;
+        final double nearest = Math.min(Math.min(left, right), Math.min(top, bottom));
+        if (nearest == left)
+        {
+            fleet.setPosition(slot, minX - robotRadius, y);
+        } else if (nearest == right)
+        {
+            fleet.setPosition(slot, maxX + robotRadius, y);
+        } else if (nearest == top)
+        {
+            fleet.setPosition(slot, x, minY - robotRadius);
+        } else
+        {
+            fleet.setPosition(slot, x, maxY + robotRadius);
+        }
+        return 1;
+    }
+
+    /**
+     * Раскладывает препятствия, расширенные на радиус робота, по всем ячейкам, которые они покрывают.
+     */
+    private void rebuildObstacleGrid(double boundsX, double boundsY)
+    {
+        obstacleBoundsX = boundsX;
+        obstacleBoundsY = boundsY;
+        obstacleCellSize = Math.max(2 * robotRadius, Math.max(boundsX, boundsY) / OBSTACLE_GRID_SIDE);
+        obstacleColumns = Math.max(1, (int) Math.ceil(boundsX / obstacleCellSize));
+        obstacleRows = Math.max(1, (int) Math.ceil(boundsY / obstacleCellSize));
+        final int cells = obstacleColumns * obstacleRows;
+        obstacleCellStart = new int[cells + 1];
+
+        final int count = obstacles.size();
+        boxes = new double[count * BOX];
+        for (int k = 0; k < count; k++)
+        {
+            final Obstacle obstacle = obstacles.get(k);
+            boxes[k * BOX] = obstacle.getMinX();
+            boxes[k * BOX + 1] = obstacle.getMinY();
+            boxes[k * BOX + 2] = obstacle.getMaxX();
+            boxes[k * BOX + 3] = obstacle.getMaxY();
+        }
+        for (int pass = 0; pass < 2; pass++)
+        {
+            final int[] cursor = pass == 0 ? null : Arrays.copyOf(obstacleCellStart, cells);
+            for (int k = 0; k < count; k++)
+            {
+                final int minColumn = column(boxes[k * BOX] - robotRadius);
+                final int maxColumn = column(boxes[k * BOX + 2] + robotRadius);
+                final int minRow = row(boxes[k * BOX + 1] - robotRadius);
+                final int maxRow = row(boxes[k * BOX + 3] + robotRadius);
+                for (int r = minRow; r <= maxRow; r++)
+                {
+                    for (int c = minColumn; c <= maxColumn; c++)
+                    {
+                        final int cell = r * obstacleColumns + c;
+                        if (cursor == null)
+                        {
+                            obstacleCellStart[cell + 1]++;
+                        } else
+                        {
+                            obstacleCellItems[cursor[cell]++] = k;
+                        }
+                    }
+                }
+            }
+            if (pass == 0)
+            {
+                for (int c = 0; c < cells; c++)
+                {
+                    obstacleCellStart[c + 1] += obstacleCellStart[c];
+                }
+                obstacleCellItems = new int[obstacleCellStart[cells]];
+            }
+        }
+        obstacleGridValid = true;
+    }
+
+    private int column(double value)
+    {
+        final int c = (int) Math.floor(value / obstacleCellSize);
+        return c < 0 ? 0 : Math.min(c, obstacleColumns - 1);
+    }
+
+    private int row(double value)
+    {
+        final int r = (int) Math.floor(value / obstacleCellSize);
+        return r < 0 ? 0 : Math.min(r, obstacleRows - 1);
+    }
+
+    /**
+     * Возвращает ячейку точки; точки за пределами области попадают в крайние ячейки.
+     */
+    private static int cell(double x, double y, double size, int columns, int rows)
+    {
+        int c = (int) Math.floor(x / size);
+        int r = (int) Math.floor(y / size);
+        c = c < 0 ? 0 : Math.min(c, columns - 1);
+        r = r < 0 ? 0 : Math.min(r, rows - 1);
+        return r * columns + c;
+    }
+
+    /**
+     * Проверяет, пересекает ли круг хотя бы одно препятствие.
+     * @param x координата x центра
+     * @param y координата y центра
+     * @param radius радиус
+     * @return true, если круг задевает препятствие
+     */
+    public boolean isBlocked(double x, double y, double radius)
+    {
+        for (Obstacle obstacle : obstacles)
+        {
+            if (obstacle.intersects(x, y, radius))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавляет препятствие.
+     * @param obstacle препятствие
+     */
+    public void addObstacle(Obstacle obstacle)
+    {
+        obstacles.add(obstacle);
+        obstacleGridValid = false;
+        version++;
+    }
+
+    /**
+     * Удаляет все препятствия.
+     */
+    public void clearObstacles()
+    {
+        obstacles.clear();
+        obstacleGridValid = false;
+        version++;
+    }
+
+    /**
+     * Возвращает препятствия в порядке добавления.
+     * @return неизменяемый список препятствий
+     */
+    public List<Obstacle> getObstacles()
+    {
+        return Collections.unmodifiableList(obstacles);
+    }
+
+    /**
+     * Создает обработчик с теми же препятствиями и настройками; рабочие массивы не копируются.
+     * @return копия обработчика
+     */
+    CollisionSystem copy()
+    {
+        final CollisionSystem copy = new CollisionSystem(robotRadius);
+        copy.robotCollisions = robotCollisions;
+        copy.obstacles.addAll(obstacles);
+        return copy;
+    }
+
+    /**
+     * Возвращает радиус робота.
+     * @return радиус
+     */
+    public double getRobotRadius()
+    {
+        return robotRadius;
+    }
+
+    /**
+     * Устанавливает радиус робота.
+     * @param newRobotRadius радиус
+     */
+    public void setRobotRadius(double newRobotRadius)
+    {
+        if (!(newRobotRadius > 0))
+        {
+            throw new IllegalArgumentException("robotRadius must be positive: " + newRobotRadius);
+        }
+        if (newRobotRadius != robotRadius)
+        {
+            robotRadius = newRobotRadius;
+            obstacleGridValid = false;
+            version++;
+        }
+    }
+
+    /**
+     * Возвращает номер версии карты. Номер меняется при каждом изменении препятствий или радиуса робота.
+     * @return номер версии
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Проверяет, обрабатываются ли столкновения роботов друг с другом.
+     * @return true, если столкновения роботов обрабатываются
+     */
+    public boolean isRobotCollisionsEnabled()
+    {
+        return robotCollisions;
+    }
+
+    /**
+     * Включает или выключает обработку столкновений роботов друг с другом. Препятствия учитываются всегда.
+     * @param enabled true, чтобы обрабатывать столкновения роботов
+     */
+    public void setRobotCollisionsEnabled(boolean enabled)
+    {
+        if (enabled && !robotCollisions)
+        {
+            // Пока столкновения были выключены, роботы могли пересечься где угодно
+            robotGrid = null;
+        }
+        robotCollisions = enabled;
+    }
+}
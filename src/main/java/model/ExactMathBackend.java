@@ -0,0 +1,25 @@
+package model;
+
+/**
+ * Точные тригонометрические функции {@link Math}.
+ */
+final class ExactMathBackend implements MathBackend
+{
+    @Override
+    public double sin(double angle)
+    {
+        return Math.sin(angle);
+    }
+
+    @Override
+    public double cos(double angle)
+    {
+        return Math.cos(angle);
+    }
+
+    @Override
+    public double atan2(double y, double x)
+    {
+        return Math.atan2(y, x);
+    }
+}
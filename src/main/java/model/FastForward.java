@@ -0,0 +1,336 @@
+package model;
+
+/**
+ * Перемотка движения роботов на большой промежуток времени без пошаговой симуляции.
+ * <p>
+ * Движение робота состоит из фаз. На прямом участке робот идет по лучу, и момент выхода из фазы
+ * (прибытие или отклонение цели от курса больше {@link RobotFleet#EPSILON}) находится из квадратного уравнения.
+ * На повороте направление меняется равномерно, а смещение по каждой оси подчиняется уравнению
+ * {@code dx = k f(x) d(sin θ)}, {@code dy = -k f(y) d(cos θ)}, где {@code k = SPEED / ω}, а {@code f} — кусочно-линейный
+ * коэффициент скорости {@link RobotsMath#speedFactor}. Уравнение решается в замкнутом виде по участкам линейности
+ * {@code f}, поэтому положение на повороте — явная функция угла, а сама дуга периодична по углу.
+ * Момент выхода с поворота ищется по одному периоду дуги с фиксированным числом проб и уточняется делением пополам.
+ * <p>
+ * Результат — состояние непрерывной модели, которую приближает пошаговая симуляция с шагом {@code deltaTime};
+ * расхождение с пошаговым расчетом имеет порядок смещения за один шаг на каждую смену фазы.
+ * Отклонение курса, как и в {@link RobotFleet#stepRobot}, сравнивается без учета перехода угла через 0.
+ * Если прямой участок кончился отклонением, робот, как и в пошаговой модели, поворачивает в течение одного шага;
+ * когда поворот возвращает цель в пределы курса, фазы чередуются с периодом в один шаг.
+ */
+public final class FastForward
+{
+    private static final double TAU = 2 * Math.PI;
+    private static final double MIN_SPEED_FACTOR = 0.01;
+    private static final int ARC_SAMPLES = 512;
+    private static final int BISECTION_STEPS = 48;
+    private static final int MAX_PHASES = 1_000_000;
+    private static final double SLIDE_TIME = 5;
+
+    private FastForward()
+    {
+    }
+
+    /**
+     * Перематывает всех роботов парка на указанное время.
+     * @param fleet парк роботов
+     * @param duration время перемотки
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     */
+    public static void advanceAll(RobotFleet fleet, double duration, double boundsX, double boundsY)
+    {
+        for (int i = 0; i < fleet.size(); i++)
+        {
+            advance(fleet, i, duration, boundsX, boundsY);
+        }
+    }
+
+    /**
+     * Перематывает робота на указанное время или до момента, когда он пройдет весь маршрут.
+     * После прибытия робот стоит на месте, поэтому его состояние на момент {@code duration} совпадает с состоянием
+     * на момент прибытия.
+     * @param fleet парк роботов
+     * @param slot номер слота
+     * @param duration время перемотки
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     * @return время прибытия от начала перемотки или {@link Double#NaN}, если робот не прибыл за {@code duration}
+     */
+    public static double advance(RobotFleet fleet, int slot, double duration, double boundsX, double boundsY)
+    {
+        if (duration < 0)
+        {
+            throw new IllegalArgumentException("duration must not be negative: " + duration);
+        }
+        double elapsed = 0;
+        for (int phase = 0; phase < MAX_PHASES; phase++)
+        {
+            final double px = fleet.getX(slot);
+            final double py = fleet.getY(slot);
+            final double tx = fleet.getTargetX(slot);
+            final double ty = fleet.getTargetY(slot);
+            if (isClose(px, py, tx, ty))
+            {
+                if (fleet.getWaypointCount(slot) == 0)
+                {
+                    return elapsed;
+                }
+                fleet.advanceWaypoint(slot);
+                continue;
+            }
+
+            final double remaining = duration - elapsed;
+            if (remaining <= 0)
+            {
+                return Double.NaN;
+            }
+
+            final double dir = fleet.getDirection(slot);
+            final double omega = fleet.getAngularVelocity(slot);
+            if (Math.abs(omega) < RobotFleet.ANGULAR_VELOCITY
+                    || Math.abs(dir - RobotsMath.angleTo(px, py, tx, ty)) < RobotFleet.EPSILON)
+            {
+                final double end = straight(fleet, slot, remaining, Math.abs(omega) < RobotFleet.ANGULAR_VELOCITY);
+                elapsed += end;
+                if (end < remaining && !isClose(fleet.getX(slot), fleet.getY(slot), tx, ty))
+                {
+                    final double slide = Math.min(SLIDE_TIME, remaining - end);
+                    turn(fleet, slot, slide, boundsX, boundsY);
+                    elapsed += slide;
+                }
+            } else
+            {
+                elapsed += arc(fleet, slot, remaining, boundsX, boundsY);
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Проводит прямой участок до прибытия, отклонения цели от курса или конца отведенного времени.
+     * @param fleet парк роботов
+     * @param slot номер слота
+     * @param remaining оставшееся время
+     * @param unbounded true, если робот не поворачивает и идет прямо независимо от положения цели
+     * @return время, затраченное на участок
+     */
+    private static double straight(RobotFleet fleet, int slot, double remaining, boolean unbounded)
+    {
+        final double speed = RobotFleet.SPEED;
+        final double dir = fleet.getDirection(slot);
+        final double ux = Math.cos(dir);
+        final double uy = Math.sin(dir);
+        final double wx = fleet.getTargetX(slot) - fleet.getX(slot);
+        final double wy = fleet.getTargetY(slot) - fleet.getY(slot);
+        final double along = ux * wx + uy * wy;
+        final double lateral = Math.abs(ux * wy - uy * wx);
+
+        double end = remaining;
+
+        // |w - v t u|^2 = r^2: ближайший положительный корень — момент прибытия
+        final double r = RobotFleet.TARGET_CLOSE_ENOUGH;
+        final double discriminant = along * along - (wx * wx + wy * wy - r * r);
+        if (discriminant > 0)
+        {
+            final double arrival = (along - Math.sqrt(discriminant)) / speed;
+            if (arrival > 0)
+            {
+                end = Math.min(end, arrival);
+            }
+        }
+
+        // угол между курсом и направлением на цель достигает EPSILON, когда продольная дистанция
+        // становится равной lateral / tan(EPSILON)
+        if (!unbounded)
+        {
+            final double deviation = (along - lateral / Math.tan(RobotFleet.EPSILON)) / speed;
+            end = Math.min(end, Math.max(deviation, 0));
+        }
+
+        fleet.setPosition(slot, fleet.getX(slot) + speed * ux * end, fleet.getY(slot) + speed * uy * end);
+        return end;
+    }
+
+    /**
+     * Проводит поворот до выхода на прямую, прибытия или конца отведенного времени.
+     * @param fleet парк роботов
+     * @param slot номер слота
+     * @param remaining оставшееся время
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     * @return время, затраченное на участок
+     */
+    private static double arc(RobotFleet fleet, int slot, double remaining, double boundsX, double boundsY)
+    {
+        final double x0 = fleet.getX(slot);
+        final double y0 = fleet.getY(slot);
+        final double dir0 = fleet.getDirection(slot);
+        final double omega = fleet.getAngularVelocity(slot);
+        final double tx = fleet.getTargetX(slot);
+        final double ty = fleet.getTargetY(slot);
+        final double k = RobotFleet.SPEED / omega;
+        final double period = TAU / Math.abs(omega);
+        final double horizon = Math.min(remaining, period);
+
+        double previous = 0;
+        double found = Double.NaN;
+        for (int i = 1; i <= ARC_SAMPLES; i++)
+        {
+            final double t = horizon * i / ARC_SAMPLES;
+            if (arcExit(x0, y0, dir0, omega, k, t, tx, ty, boundsX, boundsY))
+            {
+                found = t;
+                break;
+            }
+            previous = t;
+        }
+
+        final double end;
+        if (Double.isNaN(found))
+        {
+            // выхода за период нет: дуга замкнута, и состояние в конце отведенного времени вычисляется сразу
+            end = remaining;
+        } else
+        {
+            double low = previous;
+            double high = found;
+            for (int i = 0; i < BISECTION_STEPS; i++)
+            {
+                final double middle = 0.5 * (low + high);
+                if (arcExit(x0, y0, dir0, omega, k, middle, tx, ty, boundsX, boundsY))
+                {
+                    high = middle;
+                } else
+                {
+                    low = middle;
+                }
+            }
+            end = high;
+        }
+
+        turn(fleet, slot, end, boundsX, boundsY);
+        return end;
+    }
+
+    /**
+     * Переводит робота в состояние через время {@code time} поворота.
+     * @param fleet парк роботов
+     * @param slot номер слота
+     * @param time время поворота
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     */
+    private static void turn(RobotFleet fleet, int slot, double time, double boundsX, double boundsY)
+    {
+        final double dir0 = fleet.getDirection(slot);
+        final double omega = fleet.getAngularVelocity(slot);
+        final double k = RobotFleet.SPEED / omega;
+        final double theta = dir0 + omega * time;
+        fleet.setPosition(slot, arcX(fleet.getX(slot), dir0, theta, k, boundsX),
+                arcY(fleet.getY(slot), dir0, theta, k, boundsY));
+        fleet.setDirection(slot, RobotsMath.asNormalizedRadians(theta));
+    }
+
+    /**
+     * Проверяет, выйдет ли робот с поворота к моменту {@code t}: прибудет к цели или повернется к ней.
+     */
+    private static boolean arcExit(double x0, double y0, double dir0, double omega, double k, double t,
+                                   double tx, double ty, double boundsX, double boundsY)
+    {
+        final double theta = dir0 + omega * t;
+        final double px = arcX(x0, dir0, theta, k, boundsX);
+        final double py = arcY(y0, dir0, theta, k, boundsY);
+        return isClose(px, py, tx, ty)
+                || Math.abs(RobotsMath.asNormalizedRadians(theta) - RobotsMath.angleTo(px, py, tx, ty)) < RobotFleet.EPSILON;
+    }
+
+    /**
+     * Координата x на дуге при угле {@code theta}.
+     */
+    private static double arcX(double x0, double dir0, double theta, double k, double bounds)
+    {
+        return flow(x0, k * (Math.sin(theta) - Math.sin(dir0)), bounds);
+    }
+
+    /**
+     * Координата y на дуге при угле {@code theta}.
+     */
+    private static double arcY(double y0, double dir0, double theta, double k, double bounds)
+    {
+        return flow(y0, k * (Math.cos(dir0) - Math.cos(theta)), bounds);
+    }
+
+    /**
+     * Решает уравнение {@code dx/du = f(x)} с коэффициентом скорости {@link RobotsMath#speedFactor}
+     * на отрезке длины {@code u}. Коэффициент линеен на четырех участках: постоянен у краев,
+     * растет до середины и убывает после нее, поэтому решение на каждом участке — линейная функция
+     * или экспонента, а переход между участками находится по логарифму.
+     * @param x начальная координата
+     * @param u интеграл смещения без учета коэффициента скорости
+     * @param bounds верхняя граница координаты
+     * @return координата после смещения
+     */
+    static double flow(double x, double u, double bounds)
+    {
+        final double half = bounds / 2;
+        final double low = MIN_SPEED_FACTOR * half;
+        final double high = bounds - low;
+        for (int region = 0; region < 4 && u != 0; region++)
+        {
+            double need;
+            if (u > 0)
+            {
+                if (x < low)
+                {
+                    need = (low - x) / MIN_SPEED_FACTOR;
+                    if (u <= need) return x + MIN_SPEED_FACTOR * u;
+                    x = low;
+                } else if (x < half)
+                {
+                    need = half * Math.log(half / x);
+                    if (u <= need) return x * Math.exp(u / half);
+                    x = half;
+                } else if (x < high)
+                {
+                    need = half * Math.log((bounds - x) / (bounds - high));
+                    if (u <= need) return bounds - (bounds - x) * Math.exp(-u / half);
+                    x = high;
+                } else
+                {
+                    return x + MIN_SPEED_FACTOR * u;
+                }
+                u -= need;
+            } else
+            {
+                if (x > high)
+                {
+                    need = (x - high) / MIN_SPEED_FACTOR;
+                    if (-u <= need) return x + MIN_SPEED_FACTOR * u;
+                    x = high;
+                } else if (x > half)
+                {
+                    need = half * Math.log(half / (bounds - x));
+                    if (-u <= need) return bounds - (bounds - x) * Math.exp(-u / half);
+                    x = half;
+                } else if (x > low)
+                {
+                    need = half * Math.log(x / low);
+                    if (-u <= need) return x * Math.exp(u / half);
+                    x = low;
+                } else
+                {
+                    return x + MIN_SPEED_FACTOR * u;
+                }
+                u += need;
+            }
+        }
+        return x + MIN_SPEED_FACTOR * u;
+    }
+
+    private static boolean isClose(double px, double py, double tx, double ty)
+    {
+        final double dx = tx - px;
+        final double dy = ty - py;
+        return Math.sqrt(dx * dx + dy * dy) < RobotFleet.TARGET_CLOSE_ENOUGH;
+    }
+}
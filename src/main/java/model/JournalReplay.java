@@ -0,0 +1,163 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Воспроизведение журнала, записанного {@link RobotsLogic#startRecording}.
+ * <p>
+ * Мир восстанавливается из записи начала журнала, после чего шаги выполняются без планировщика
+ * с максимальной скоростью, а каждая команда применяется на том же шаге, на котором была применена при записи.
+ * Шаг детерминирован, поэтому итоговое состояние побитово совпадает с записанным.
+ * <p>
+ * Исключение — векторное ядро шага ({@link StepKernel#VECTOR}): журнал хранит выбранное ядро, но векторная
+ * тригонометрия зависит от того, скомпилирован ли код JIT-компилятором, поэтому с ним результат совпадает
+ * с записанным лишь в пределах последних битов. Если векторное ядро при воспроизведении недоступно,
+ * используется обычное.
+ */
+public final class JournalReplay
+{
+    private JournalReplay()
+    {
+    }
+
+    /**
+     * Воспроизводит журнал до конца.
+     * @param in поток журнала
+     * @return логика роботов в состоянии на момент окончания записи
+     * @throws IOException если журнал не читается или поврежден
+     */
+    public static RobotsLogic replay(InputStream in) throws IOException
+    {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != JournalWriter.MAGIC)
+        {
+            throw new IOException("Not a simulation journal");
+        }
+        final int version = data.readUnsignedByte();
+        if (version < 1 || version > JournalWriter.VERSION)
+        {
+            throw new IOException("Unsupported journal version: " + version);
+        }
+        if (data.readUnsignedByte() != JournalWriter.START)
+        {
+            throw new IOException("Journal does not start with the world state");
+        }
+
+        long tick = readVarLong(data);
+        final RobotsLogic logic = readStart(data, tick);
+
+        while (true)
+        {
+            final int code;
+            try
+            {
+                code = data.readUnsignedByte();
+            } catch (EOFException e)
+            {
+                throw new IOException("Journal is truncated at tick " + tick, e);
+            }
+            tick += readVarLong(data);
+            while (logic.getTickCount() < tick)
+            {
+                logic.moveRobots();
+            }
+            switch (code)
+            {
+                case JournalWriter.TARGET -> logic.applyTarget(readSlot(data), data.readDouble(), data.readDouble());
+                case JournalWriter.BOUNDS -> logic.applyWindowBounds(data.readDouble(), data.readDouble());
+                case JournalWriter.WAYPOINTS -> logic.applyWaypoints(readSlot(data), readCoordinates(data));
+                case JournalWriter.CLEAR_WAYPOINTS -> logic.applyClearWaypoints(readSlot(data));
+                case JournalWriter.MATH -> logic.applyMathBackend(readMath(data));
+                case JournalWriter.FAST_FORWARD -> logic.applyFastForward(data.readDouble());
+                case JournalWriter.OBSTACLE -> logic.applyObstacle(new Obstacle(data.readDouble(), data.readDouble(),
+                        data.readDouble(), data.readDouble()));
+                case JournalWriter.CLEAR_OBSTACLES -> logic.applyClearObstacles();
+                case JournalWriter.COLLISIONS -> logic.applyCollisions(data.readBoolean(), data.readDouble());
+                case JournalWriter.STEP_KERNEL -> logic.applyStepKernel(readKernel(data));
+                case JournalWriter.END ->
+                {
+                    return logic;
+                }
+                default -> throw new IOException("Unknown journal record " + code + " at tick " + tick);
+            }
+        }
+    }
+
+    private static RobotsLogic readStart(DataInputStream data, long tick) throws IOException
+    {
+        final double boundsX = data.readDouble();
+        final double boundsY = data.readDouble();
+        final MathBackend math = readMath(data);
+        final int size = (int) readVarLong(data);
+        final RobotFleet fleet = new RobotFleet(Math.max(size, 1));
+        fleet.setMathBackend(math);
+        for (int i = 0; i < size; i++)
+        {
+            fleet.restoreRobot(data.readDouble(), data.readDouble(), data.readDouble(), data.readDouble(),
+                    data.readDouble(), data.readDouble());
+            final double[] waypoints = readCoordinates(data);
+            fleet.addWaypoints(i, waypoints, 0, waypoints.length / 2);
+        }
+        final RobotsLogic logic = new RobotsLogic(fleet);
+        logic.applyWindowBounds(boundsX, boundsY);
+        logic.setTickCount(tick);
+        return logic;
+    }
+
+    private static MathBackend readMath(DataInputStream data) throws IOException
+    {
+        final int code = data.readUnsignedByte();
+        return switch (code)
+        {
+            case JournalWriter.MATH_EXACT -> MathBackend.EXACT;
+            case JournalWriter.MATH_FAST -> MathBackend.FAST;
+            default -> throw new IOException("Unknown math backend " + code);
+        };
+    }
+
+    private static StepKernel readKernel(DataInputStream data) throws IOException
+    {
+        final int code = data.readUnsignedByte();
+        return switch (code)
+        {
+            case JournalWriter.KERNEL_SCALAR -> StepKernel.SCALAR;
+            case JournalWriter.KERNEL_VECTOR -> StepKernel.VECTOR;
+            default -> throw new IOException("Unknown step kernel " + code);
+        };
+    }
+
+    private static int readSlot(DataInputStream data) throws IOException
+    {
+        return (int) readVarLong(data);
+    }
+
+    private static double[] readCoordinates(DataInputStream data) throws IOException
+    {
+        final int count = (int) readVarLong(data);
+        final double[] coordinates = new double[2 * count];
+        for (int i = 0; i < coordinates.length; i++)
+        {
+            coordinates[i] = data.readDouble();
+        }
+        return coordinates;
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            final int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,281 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import log.Logger;
+
+/**
+ * Запись журнала входных команд симуляции в компактном двоичном формате.
+ * <p>
+ * Журнал начинается с заголовка ({@link #MAGIC}, {@link #VERSION}) и записи {@link #START} с полным состоянием мира.
+ * Каждая следующая запись — это код команды, приращение номера шага в виде varint и данные команды.
+ * Сразу за записью начала идут настройки столкновений, ядро шага и препятствия мира в виде обычных команд.
+ * Журнал заканчивается записью {@link #END} с номером шага, на котором запись остановлена.
+ * Ошибка ввода-вывода записывается в лог и прекращает запись, не прерывая симуляцию.
+ */
+final class JournalWriter
+{
+    static final int MAGIC = 0x524A4E4C;
+    static final int VERSION = 3;
+
+    static final int START = 1;
+    static final int TARGET = 2;
+    static final int BOUNDS = 3;
+    static final int WAYPOINTS = 4;
+    static final int CLEAR_WAYPOINTS = 5;
+    static final int MATH = 6;
+    static final int FAST_FORWARD = 7;
+    static final int END = 8;
+    static final int OBSTACLE = 9;
+    static final int CLEAR_OBSTACLES = 10;
+    static final int COLLISIONS = 11;
+    static final int STEP_KERNEL = 12;
+
+    static final int MATH_EXACT = 0;
+    static final int MATH_FAST = 1;
+
+    static final int KERNEL_SCALAR = 0;
+    static final int KERNEL_VECTOR = 1;
+
+    private final DataOutputStream out;
+    private long lastTick;
+    private boolean failed;
+
+    JournalWriter(OutputStream stream)
+    {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeStart(long tick, RobotFleet fleet, double boundsX, double boundsY)
+    {
+        if (failed) return;
+        try
+        {
+            out.writeByte(START);
+            writeVarLong(tick);
+            lastTick = tick;
+            out.writeDouble(boundsX);
+            out.writeDouble(boundsY);
+            out.writeByte(fleet.getMathBackend() == MathBackend.FAST ? MATH_FAST : MATH_EXACT);
+            final int size = fleet.size();
+            writeVarLong(size);
+            for (int i = 0; i < size; i++)
+            {
+                out.writeDouble(fleet.getX(i));
+                out.writeDouble(fleet.getY(i));
+                out.writeDouble(fleet.getDirection(i));
+                out.writeDouble(fleet.getAngularVelocity(i));
+                out.writeDouble(fleet.getTargetX(i));
+                out.writeDouble(fleet.getTargetY(i));
+                writeCoordinates(fleet.getWaypoints(i));
+            }
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeTarget(long tick, int slot, double x, double y)
+    {
+        if (failed) return;
+        try
+        {
+            header(TARGET, tick);
+            writeVarLong(slot);
+            out.writeDouble(x);
+            out.writeDouble(y);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeBounds(long tick, double width, double height)
+    {
+        if (failed) return;
+        try
+        {
+            header(BOUNDS, tick);
+            out.writeDouble(width);
+            out.writeDouble(height);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeWaypoints(long tick, int slot, double[] coordinates)
+    {
+        if (failed) return;
+        try
+        {
+            header(WAYPOINTS, tick);
+            writeVarLong(slot);
+            writeCoordinates(coordinates);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeClearWaypoints(long tick, int slot)
+    {
+        if (failed) return;
+        try
+        {
+            header(CLEAR_WAYPOINTS, tick);
+            writeVarLong(slot);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeMathBackend(long tick, MathBackend math)
+    {
+        if (failed) return;
+        try
+        {
+            header(MATH, tick);
+            out.writeByte(math == MathBackend.FAST ? MATH_FAST : MATH_EXACT);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeStepKernel(long tick, StepKernel kernel)
+    {
+        if (failed) return;
+        try
+        {
+            header(STEP_KERNEL, tick);
+            out.writeByte(kernel.isVectorized() ? KERNEL_VECTOR : KERNEL_SCALAR);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeFastForward(long tick, double duration)
+    {
+        if (failed) return;
+        try
+        {
+            header(FAST_FORWARD, tick);
+            out.writeDouble(duration);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeObstacle(long tick, Obstacle obstacle)
+    {
+        if (failed) return;
+        try
+        {
+            header(OBSTACLE, tick);
+            out.writeDouble(obstacle.getMinX());
+            out.writeDouble(obstacle.getMinY());
+            out.writeDouble(obstacle.getMaxX());
+            out.writeDouble(obstacle.getMaxY());
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeClearObstacles(long tick)
+    {
+        if (failed) return;
+        try
+        {
+            header(CLEAR_OBSTACLES, tick);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeCollisions(long tick, boolean robotCollisions, double robotRadius)
+    {
+        if (failed) return;
+        try
+        {
+            header(COLLISIONS, tick);
+            out.writeBoolean(robotCollisions);
+            out.writeDouble(robotRadius);
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void writeEnd(long tick)
+    {
+        if (failed) return;
+        try
+        {
+            header(END, tick);
+            out.flush();
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    void close()
+    {
+        try
+        {
+            out.close();
+        } catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    private void header(int code, long tick) throws IOException
+    {
+        out.writeByte(code);
+        writeVarLong(tick - lastTick);
+        lastTick = tick;
+    }
+
+    private void writeCoordinates(double[] coordinates) throws IOException
+    {
+        writeVarLong(coordinates.length / 2);
+        for (double value : coordinates)
+        {
+            out.writeDouble(value);
+        }
+    }
+
+    private void writeVarLong(long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private void fail(IOException e)
+    {
+        failed = true;
+        Logger.error("Запись журнала симуляции прервана: " + e);
+    }
+}
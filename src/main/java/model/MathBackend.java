@@ -0,0 +1,42 @@
+package model;
+
+/**
+ * Набор тригонометрических функций, которыми пользуется шаг симуляции.
+ * <p>
+ * {@link #EXACT} вычисляет значения через {@link Math} и используется по умолчанию.
+ * {@link #FAST} использует таблицы и многочлены; погрешности указаны в описании {@link FastMathBackend}.
+ */
+public interface MathBackend
+{
+    /**
+     * Точные функции {@link Math}.
+     */
+    MathBackend EXACT = new ExactMathBackend();
+
+    /**
+     * Приближенные функции на таблицах и многочленах.
+     */
+    MathBackend FAST = new FastMathBackend();
+
+    /**
+     * Вычисляет синус.
+     * @param angle угол в радианах
+     * @return синус угла
+     */
+    double sin(double angle);
+
+    /**
+     * Вычисляет косинус.
+     * @param angle угол в радианах
+     * @return косинус угла
+     */
+    double cos(double angle);
+
+    /**
+     * Вычисляет угол вектора (x, y), как {@link Math#atan2(double, double)}.
+     * @param y координата y
+     * @param x координата x
+     * @return угол в радианах от -π до π
+     */
+    double atan2(double y, double x);
+}
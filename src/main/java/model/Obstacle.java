@@ -0,0 +1,92 @@
+package model;
+
+/**
+ * Неподвижное препятствие в виде прямоугольника со сторонами, параллельными осям координат.
+ */
+public final class Obstacle
+{
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    /**
+     * Создает препятствие по двум противоположным углам.
+     * @param minX левая граница
+     * @param minY верхняя граница
+     * @param maxX правая граница
+     * @param maxY нижняя граница
+     */
+    public Obstacle(double minX, double minY, double maxX, double maxY)
+    {
+        if (!(minX < maxX) || !(minY < maxY))
+        {
+            throw new IllegalArgumentException("Obstacle must have positive width and height");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Проверяет, лежит ли точка внутри препятствия или на его границе.
+     * @param x координата x
+     * @param y координата y
+     * @return true, если точка принадлежит препятствию
+     */
+    public boolean contains(double x, double y)
+    {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Проверяет, пересекает ли препятствие круг.
+     * @param x координата x центра
+     * @param y координата y центра
+     * @param radius радиус
+     * @return true, если круг и препятствие пересекаются
+     */
+    public boolean intersects(double x, double y, double radius)
+    {
+        final double dx = x - Math.max(minX, Math.min(x, maxX));
+        final double dy = y - Math.max(minY, Math.min(y, maxY));
+        return dx * dx + dy * dy < radius * radius;
+    }
+
+    /**
+     * Возвращает левую границу препятствия.
+     * @return координата границы
+     */
+    public double getMinX()
+    {
+        return minX;
+    }
+
+    /**
+     * Возвращает верхнюю границу препятствия.
+     * @return координата границы
+     */
+    public double getMinY()
+    {
+        return minY;
+    }
+
+    /**
+     * Возвращает правую границу препятствия.
+     * @return координата границы
+     */
+    public double getMaxX()
+    {
+        return maxX;
+    }
+
+    /**
+     * Возвращает нижнюю границу препятствия.
+     * @return координата границы
+     */
+    public double getMaxY()
+    {
+        return maxY;
+    }
+}
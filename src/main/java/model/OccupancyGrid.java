@@ -0,0 +1,146 @@
+package model;
+
+import java.util.List;
+
+/**
+ * Карта занятости для планирования маршрутов: область движения, разбитая на квадратные ячейки.
+ * <p>
+ * Ячейка занята, если она пересекает препятствие, расширенное на радиус робота, поэтому робот,
+ * центр которого идет по свободным ячейкам, не задевает препятствий. Точки за пределами области
+ * относятся к крайним ячейкам.
+ */
+final class OccupancyGrid
+{
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final boolean[] blocked;
+
+    /**
+     * Строит карту занятости по препятствиям.
+     * @param obstacles препятствия
+     * @param robotRadius радиус робота
+     * @param width ширина области
+     * @param height высота области
+     * @param cellSize размер ячейки
+     */
+    OccupancyGrid(List<Obstacle> obstacles, double robotRadius, double width, double height, double cellSize)
+    {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.blocked = new boolean[columns * rows];
+        for (Obstacle obstacle : obstacles)
+        {
+            final int minColumn = column(obstacle.getMinX() - robotRadius);
+            final int maxColumn = column(obstacle.getMaxX() + robotRadius);
+            final int minRow = row(obstacle.getMinY() - robotRadius);
+            final int maxRow = row(obstacle.getMaxY() + robotRadius);
+            for (int r = minRow; r <= maxRow; r++)
+            {
+                for (int c = minColumn; c <= maxColumn; c++)
+                {
+                    blocked[index(c, r)] = true;
+                }
+            }
+        }
+    }
+
+    int column(double x)
+    {
+        final int c = (int) Math.floor(x / cellSize);
+        return c < 0 ? 0 : Math.min(c, columns - 1);
+    }
+
+    int row(double y)
+    {
+        final int r = (int) Math.floor(y / cellSize);
+        return r < 0 ? 0 : Math.min(r, rows - 1);
+    }
+
+    int index(int column, int row)
+    {
+        return row * columns + column;
+    }
+
+    boolean isBlocked(int cell)
+    {
+        return blocked[cell];
+    }
+
+    boolean isFree(int column, int row)
+    {
+        return column >= 0 && column < columns && row >= 0 && row < rows && !blocked[index(column, row)];
+    }
+
+    /**
+     * Проверяет, что отрезок между центрами двух ячеек проходит только по свободным ячейкам.
+     * Перебираются все ячейки, которые пересекает отрезок; при проходе точно через угол
+     * свободными должны быть обе соседние ячейки.
+     */
+    boolean isVisible(int from, int to)
+    {
+        int c = from % columns;
+        int r = from / columns;
+        final int targetColumn = to % columns;
+        final int targetRow = to / columns;
+        final int dx = Math.abs(targetColumn - c);
+        final int dy = Math.abs(targetRow - r);
+        final int stepX = targetColumn > c ? 1 : -1;
+        final int stepY = targetRow > r ? 1 : -1;
+        // Знак ошибки показывает, какую границу ячейки отрезок пересекает раньше: вертикальную, горизонтальную или угол
+        int error = dx - dy;
+        for (int n = dx + dy; n > 0; n--)
+        {
+            if (error > 0)
+            {
+                c += stepX;
+                error -= 2 * dy;
+            } else if (error < 0)
+            {
+                r += stepY;
+                error += 2 * dx;
+            } else
+            {
+                if (!isFree(c + stepX, r) || !isFree(c, r + stepY))
+                {
+                    return false;
+                }
+                c += stepX;
+                r += stepY;
+                error += 2 * dx - 2 * dy;
+                n--;
+            }
+            if (!isFree(c, r))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    double centerX(int cell)
+    {
+        return (cell % columns + 0.5) * cellSize;
+    }
+
+    double centerY(int cell)
+    {
+        return (cell / columns + 0.5) * cellSize;
+    }
+
+    int getColumns()
+    {
+        return columns;
+    }
+
+    int getRows()
+    {
+        return rows;
+    }
+
+    int size()
+    {
+        return blocked.length;
+    }
+}
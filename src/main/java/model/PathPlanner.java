@@ -0,0 +1,355 @@
+package model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Планировщик маршрутов в обход препятствий.
+ * <p>
+ * Маршрут ищется алгоритмом A* по карте занятости ({@link OccupancyGrid}) с восемью направлениями движения
+ * и октильной эвристикой; диагональный шаг запрещен, если он срезает угол занятой ячейки. Найденный путь
+ * спрямляется: из него остаются только ячейки, между которыми нет прямой видимости.
+ * <p>
+ * Маршруты между ячейками старта и цели хранятся в общем кэше ограниченного размера с вытеснением давно
+ * не использованных записей, поэтому роботы, которые стартуют из одной ячейки к одной цели, не пересчитывают путь.
+ * Недостижимые цели кэшируются так же. Карта и кэш перестраиваются, когда меняются препятствия,
+ * радиус робота или границы области.
+ * <p>
+ * Рабочие массивы поиска переиспользуются между вызовами. Класс не потокобезопасен.
+ */
+public class PathPlanner
+{
+    public static final double DEFAULT_CELL_SIZE = 10;
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+    private static final double SQRT2 = Math.sqrt(2);
+    private static final int[] UNREACHABLE = new int[0];
+    private static final int[] NEIGHBOR_COLUMNS = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOR_ROWS = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final double cellSize;
+    private final Map<Long, int[]> cache;
+
+    private OccupancyGrid grid;
+    private int mapVersion;
+    private double mapBoundsX;
+    private double mapBoundsY;
+    private long cacheHits;
+    private long cacheMisses;
+
+    private int generation;
+    private int[] visited = new int[0];
+    private int[] closed = new int[0];
+    private double[] cost = new double[0];
+    private int[] parent = new int[0];
+    private int[] heapCells = new int[64];
+    private double[] heapKeys = new double[64];
+    private int heapSize;
+    private int[] path = new int[64];
+
+    /**
+     * Создает планировщик.
+     * @param cellSize размер ячейки карты занятости
+     * @param cacheCapacity наибольшее число маршрутов в кэше
+     */
+    public PathPlanner(double cellSize, int cacheCapacity)
+    {
+        if (!(cellSize > 0) || cacheCapacity < 1)
+        {
+            throw new IllegalArgumentException("cellSize and cacheCapacity must be positive");
+        }
+        this.cellSize = cellSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest)
+            {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Строит маршрут из точки старта в точку цели в обход препятствий.
+     * @param collisions препятствия и радиус робота
+     * @param boundsX ширина области
+     * @param boundsY высота области
+     * @param startX координата x старта
+     * @param startY координата y старта
+     * @param goalX координата x цели
+     * @param goalY координата y цели
+     * @return координаты точек маршрута подряд (x0, y0, x1, y1, ...), последняя точка — сама цель;
+     * null, если цель занята препятствием или недостижима
+     */
+    public double[] plan(CollisionSystem collisions, double boundsX, double boundsY,
+                         double startX, double startY, double goalX, double goalY)
+    {
+        ensureMap(collisions, boundsX, boundsY);
+        final int start = grid.index(grid.column(startX), grid.row(startY));
+        final int goal = grid.index(grid.column(goalX), grid.row(goalY));
+        if (grid.isBlocked(goal))
+        {
+            return null;
+        }
+        if (start == goal)
+        {
+            return new double[] {goalX, goalY};
+        }
+
+        final Long key = ((long) start << 32) | goal;
+        int[] cells = cache.get(key);
+        if (cells == null)
+        {
+            cacheMisses++;
+            cells = search(start, goal);
+            cache.put(key, cells);
+        } else
+        {
+            cacheHits++;
+        }
+        if (cells == UNREACHABLE)
+        {
+            return null;
+        }
+
+        final double[] route = new double[2 * cells.length];
+        for (int i = 0; i < cells.length - 1; i++)
+        {
+            route[2 * i] = grid.centerX(cells[i]);
+            route[2 * i + 1] = grid.centerY(cells[i]);
+        }
+        route[route.length - 2] = goalX;
+        route[route.length - 1] = goalY;
+        return route;
+    }
+
+    /**
+     * Перестраивает карту и очищает кэш, если изменились препятствия или границы.
+     */
+    private void ensureMap(CollisionSystem collisions, double boundsX, double boundsY)
+    {
+        if (grid != null && mapVersion == collisions.getVersion() && mapBoundsX == boundsX && mapBoundsY == boundsY)
+        {
+            return;
+        }
+        grid = new OccupancyGrid(collisions.getObstacles(), collisions.getRobotRadius(), boundsX, boundsY, cellSize);
+        mapVersion = collisions.getVersion();
+        mapBoundsX = boundsX;
+        mapBoundsY = boundsY;
+        cache.clear();
+        final int cells = grid.size();
+        if (visited.length < cells)
+        {
+            visited = new int[cells];
+            closed = new int[cells];
+            cost = new double[cells];
+            parent = new int[cells];
+            generation = 0;
+        }
+    }
+
+    /**
+     * Ищет путь алгоритмом A* и спрямляет его.
+     * @return ячейки спрямленного пути без стартовой, последняя — ячейка цели; {@link #UNREACHABLE}, если пути нет
+     */
+    private int[] search(int start, int goal)
+    {
+        generation++;
+        if (generation == Integer.MAX_VALUE)
+        {
+            Arrays.fill(visited, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        final int columns = grid.getColumns();
+        final int goalColumn = goal % columns;
+        final int goalRow = goal / columns;
+
+        heapSize = 0;
+        visited[start] = generation;
+        cost[start] = 0;
+        parent[start] = -1;
+        push(start, heuristic(start % columns, start / columns, goalColumn, goalRow));
+
+        boolean found = false;
+        while (heapSize > 0)
+        {
+            final int cell = pop();
+            if (closed[cell] == generation)
+            {
+                continue;
+            }
+            closed[cell] = generation;
+            if (cell == goal)
+            {
+                found = true;
+                break;
+            }
+            final int column = cell % columns;
+            final int row = cell / columns;
+            for (int k = 0; k < NEIGHBOR_COLUMNS.length; k++)
+            {
+                final int dc = NEIGHBOR_COLUMNS[k];
+                final int dr = NEIGHBOR_ROWS[k];
+                final int c = column + dc;
+                final int r = row + dr;
+                if (!grid.isFree(c, r))
+                {
+                    continue;
+                }
+                final boolean diagonal = dc != 0 && dr != 0;
+                if (diagonal && (!grid.isFree(column + dc, row) || !grid.isFree(column, row + dr)))
+                {
+                    continue;
+                }
+                final int next = grid.index(c, r);
+                final double nextCost = cost[cell] + (diagonal ? SQRT2 : 1);
+                if (closed[next] == generation || visited[next] == generation && nextCost >= cost[next])
+                {
+                    continue;
+                }
+                visited[next] = generation;
+                cost[next] = nextCost;
+                parent[next] = cell;
+                push(next, nextCost + heuristic(c, r, goalColumn, goalRow));
+            }
+        }
+        if (!found)
+        {
+            return UNREACHABLE;
+        }
+        return smooth(start, goal);
+    }
+
+    /**
+     * Восстанавливает путь по ссылкам на родителей и оставляет в нем только поворотные ячейки.
+     */
+    private int[] smooth(int start, int goal)
+    {
+        int length = 0;
+        for (int cell = goal; cell != start; cell = parent[cell])
+        {
+            if (length == path.length)
+            {
+                path = Arrays.copyOf(path, 2 * length);
+            }
+            path[length++] = cell;
+        }
+        // Путь записан от цели к старту: path[length - 1] — первая ячейка после старта
+        int[] result = new int[Math.min(length, 16)];
+        int count = 0;
+        int anchor = start;
+        int index = length - 1;
+        while (index >= 0)
+        {
+            int furthest = index;
+            while (furthest > 0 && grid.isVisible(anchor, path[furthest - 1]))
+            {
+                furthest--;
+            }
+            if (count == result.length)
+            {
+                result = Arrays.copyOf(result, 2 * count);
+            }
+            result[count++] = path[furthest];
+            anchor = path[furthest];
+            index = furthest - 1;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static double heuristic(int column, int row, int goalColumn, int goalRow)
+    {
+        final int dx = Math.abs(column - goalColumn);
+        final int dy = Math.abs(row - goalRow);
+        return dx + dy + (SQRT2 - 2) * Math.min(dx, dy);
+    }
+
+    private void push(int cell, double key)
+    {
+        if (heapSize == heapCells.length)
+        {
+            heapCells = Arrays.copyOf(heapCells, 2 * heapSize);
+            heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+        }
+        int i = heapSize++;
+        while (i > 0)
+        {
+            final int up = (i - 1) >>> 1;
+            if (heapKeys[up] <= key)
+            {
+                break;
+            }
+            heapCells[i] = heapCells[up];
+            heapKeys[i] = heapKeys[up];
+            i = up;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+    }
+
+    private int pop()
+    {
+        final int top = heapCells[0];
+        final int lastCell = heapCells[--heapSize];
+        final double lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+            {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+            {
+                child++;
+            }
+            if (heapKeys[child] >= lastKey)
+            {
+                break;
+            }
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapCells[i] = lastCell;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+
+    /**
+     * Очищает кэш маршрутов. Кэш очищается и сам при изменении карты.
+     */
+    public void invalidate()
+    {
+        cache.clear();
+    }
+
+    /**
+     * Возвращает число маршрутов в кэше.
+     * @return число маршрутов
+     */
+    public int getCacheSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Возвращает число запросов, обслуженных из кэша.
+     * @return число попаданий
+     */
+    public long getCacheHits()
+    {
+        return cacheHits;
+    }
+
+    /**
+     * Возвращает число запросов, для которых маршрут пришлось искать.
+     * @return число промахов
+     */
+    public long getCacheMisses()
+    {
+        return cacheMisses;
+    }
+}
@@ -3,14 +3,33 @@ package model;
 import java.awt.geom.Point2D;
 
 /**
- * Класс, представляющий робота.
+ * Класс, представляющий робота. Является представлением одного слота парка роботов {@link RobotFleet}.
  */
 public class Robot
 {
-    private final Point2D.Double position = new Point2D.Double(100, 100);
-    private double direction = 0;
-    private double angularVelocity = 0;
-    private final double speed = 0.1;
+    private final RobotFleet fleet;
+    private final int slot;
+    private final Point2D.Double position = new Point2D.Double();
+
+    /**
+     * Создает отдельного робота в точке (100, 100) со своим собственным парком из одного слота.
+     */
+    public Robot()
+    {
+        this.fleet = new RobotFleet(1);
+        this.slot = fleet.addRobot(100, 100, 0);
+    }
+
+    /**
+     * Создает представление робота из указанного слота парка.
+     * @param fleet парк роботов
+     * @param slot номер слота
+     */
+    public Robot(RobotFleet fleet, int slot)
+    {
+        this.fleet = fleet;
+        this.slot = slot;
+    }
 
     /**
      * Перемещает робота на указанное смещение.
@@ -18,7 +37,17 @@ public class Robot
      */
     public void move(Point2D.Double displacement)
     {
-        position.setLocation(getPosition().getX() + displacement.getX(), getPosition().getY() + displacement.getY());
+        move(displacement.getX(), displacement.getY());
+    }
+
+    /**
+     * Перемещает робота на указанное смещение без создания новых объектов.
+     * @param dx смещение по x
+     * @param dy смещение по y
+     */
+    public void move(double dx, double dy)
+    {
+        fleet.move(slot, dx, dy);
     }
 
     /**
@@ -27,15 +56,16 @@ public class Robot
      */
     public double getSpeed()
     {
-        return speed;
+        return fleet.getSpeed();
     }
 
     /**
-     * Возвращает текущую позицию робота.
+     * Возвращает текущую позицию робота. Возвращаемая точка обновляется при каждом вызове.
      * @return текущая позиция робота
      */
     public Point2D.Double getPosition()
     {
+        position.setLocation(fleet.getX(slot), fleet.getY(slot));
         return position;
     }
 
@@ -45,7 +75,7 @@ public class Robot
      */
     public double getDirection()
     {
-        return direction;
+        return fleet.getDirection(slot);
     }
 
     /**
@@ -54,7 +84,7 @@ public class Robot
      */
     public void setDirection(double newDirection)
     {
-        this.direction = newDirection;
+        fleet.setDirection(slot, newDirection);
     }
 
     /**
@@ -63,7 +93,7 @@ public class Robot
      */
     public void setAngularVelocity(double newAngularVelocity)
     {
-        this.angularVelocity = newAngularVelocity;
+        fleet.setAngularVelocity(slot, newAngularVelocity);
     }
 
     /**
@@ -72,6 +102,6 @@ public class Robot
      */
     public double getAngularVelocity()
     {
-        return angularVelocity;
+        return fleet.getAngularVelocity(slot);
     }
 }
\ No newline at end of file
@@ -0,0 +1,920 @@
+package model;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Парк роботов, хранящий состояние в виде столбцов примитивных массивов.
+ * <p>
+ * Каждый робот занимает один слот: его координаты, направление, угловая скорость и цель лежат
+ * в одинаковых индексах массивов {@code x}, {@code y}, {@code direction}, {@code angularVelocity},
+ * {@code targetX} и {@code targetY}. Шаг симуляции проходит по активным слотам одним циклом без создания объектов.
+ * <p>
+ * Слоты не зависят друг от друга, поэтому шаг можно выполнять параллельно по частям
+ * ({@link #stepParallel(double, double, double, ForkJoinPool, int)}): с обычным ядром шага результат побитово
+ * совпадает с последовательным шагом при любом разбиении и любом числе потоков.
+ * <p>
+ * У каждого робота есть очередь путевых точек. Когда робот подходит к цели ближе {@link #TARGET_CLOSE_ENOUGH},
+ * его целью становится следующая точка из очереди.
+ * <p>
+ * Шаг обходит только активных роботов. Робот, стоящий у цели с пустой очередью, исключается из активного
+ * множества и возвращается в него при любом изменении позиции, цели или очереди путевых точек, поэтому
+ * стоимость шага пропорциональна числу движущихся роботов, а не размеру парка.
+ * <p>
+ * Парк также запоминает слоты, пройденные последним шагом ({@link #steppedSlots()}), и слоты, изменившиеся
+ * с последнего {@link #clearChanged()} ({@link #changedSlots()}). По ним {@link CollisionSystem} проверяет
+ * только сдвинувшихся роботов, а {@link WorldSnapshotBuffer} копирует в кадр только изменившиеся слоты, так что
+ * шаг {@link RobotsLogic} целиком не зависит от числа стоящих роботов. Полный проход по парку остается при смене
+ * препятствий, границ или настроек столкновений, после восстановления парка и при перемотке
+ * ({@link FastForward#advanceAll}).
+ */
+public class RobotFleet
+{
+    static final double ANGULAR_VELOCITY = 0.001;
+    static final double TARGET_CLOSE_ENOUGH = 5;
+    static final double EPSILON = 0.05;
+    static final double SPEED = 0.1;
+    private static final int DEFAULT_CAPACITY = 16;
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private double[] x;
+    private double[] y;
+    private double[] direction;
+    private double[] angularVelocity;
+    private double[] targetX;
+    private double[] targetY;
+    private double[][] waypoints;
+    private int[] waypointHead;
+    private int[] waypointCount;
+    private int size;
+    private int[] active;
+    private int[] activePosition;
+    private boolean[] settled;
+    private int activeCount;
+    private int[] stepped;
+    private int steppedCount;
+    private int[] changed;
+    private boolean[] changedMark;
+    private int changedCount;
+    private boolean allChanged;
+    private MathBackend math = MathBackend.EXACT;
+    private StepKernel kernel = StepKernel.SCALAR;
+
+    /**
+     * Создает пустой парк роботов с емкостью по умолчанию.
+     */
+    public RobotFleet()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Создает пустой парк роботов с указанной начальной емкостью.
+     * @param initialCapacity начальная емкость
+     */
+    public RobotFleet(int initialCapacity)
+    {
+        if (initialCapacity < 1)
+        {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        x = new double[initialCapacity];
+        y = new double[initialCapacity];
+        direction = new double[initialCapacity];
+        angularVelocity = new double[initialCapacity];
+        targetX = new double[initialCapacity];
+        targetY = new double[initialCapacity];
+        waypoints = new double[initialCapacity][];
+        waypointHead = new int[initialCapacity];
+        waypointCount = new int[initialCapacity];
+        active = new int[initialCapacity];
+        activePosition = new int[initialCapacity];
+        settled = new boolean[initialCapacity];
+        stepped = new int[initialCapacity];
+        changed = new int[initialCapacity];
+        changedMark = new boolean[initialCapacity];
+    }
+
+    /**
+     * Добавляет робота в парк. Целью нового робота становится его собственная позиция.
+     * @param startX начальная координата x
+     * @param startY начальная координата y
+     * @param startDirection начальное направление в радианах
+     * @return номер слота добавленного робота
+     */
+    public int addRobot(double startX, double startY, double startDirection)
+    {
+        if (size == x.length)
+        {
+            grow();
+        }
+        final int slot = size++;
+        x[slot] = startX;
+        y[slot] = startY;
+        direction[slot] = startDirection;
+        angularVelocity[slot] = 0;
+        targetX[slot] = startX;
+        targetY[slot] = startY;
+        waypoints[slot] = null;
+        waypointHead[slot] = 0;
+        waypointCount[slot] = 0;
+        activePosition[slot] = -1;
+        activate(slot);
+        return slot;
+    }
+
+    /**
+     * Добавляет робота с полностью заданным состоянием, не пересчитывая направление поворота.
+     * Используется при восстановлении сохраненного состояния.
+     * @return номер слота добавленного робота
+     */
+    int restoreRobot(double startX, double startY, double startDirection, double startAngularVelocity,
+                     double startTargetX, double startTargetY)
+    {
+        final int slot = addRobot(startX, startY, startDirection);
+        angularVelocity[slot] = startAngularVelocity;
+        targetX[slot] = startTargetX;
+        targetY[slot] = startTargetY;
+        return slot;
+    }
+
+    /**
+     * Увеличивает емкость всех столбцов вдвое.
+     */
+    private void grow()
+    {
+        final int newCapacity = x.length * 2;
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        direction = Arrays.copyOf(direction, newCapacity);
+        angularVelocity = Arrays.copyOf(angularVelocity, newCapacity);
+        targetX = Arrays.copyOf(targetX, newCapacity);
+        targetY = Arrays.copyOf(targetY, newCapacity);
+        waypoints = Arrays.copyOf(waypoints, newCapacity);
+        waypointHead = Arrays.copyOf(waypointHead, newCapacity);
+        waypointCount = Arrays.copyOf(waypointCount, newCapacity);
+        active = Arrays.copyOf(active, newCapacity);
+        activePosition = Arrays.copyOf(activePosition, newCapacity);
+        settled = Arrays.copyOf(settled, newCapacity);
+        stepped = Arrays.copyOf(stepped, newCapacity);
+        changed = Arrays.copyOf(changed, newCapacity);
+        changedMark = Arrays.copyOf(changedMark, newCapacity);
+    }
+
+    /**
+     * Отмечает слот изменившимся и возвращает робота в активное множество, если его там нет.
+     * @param slot номер слота
+     */
+    private void activate(int slot)
+    {
+        markChanged(slot);
+        if (activePosition[slot] < 0)
+        {
+            active[activeCount] = slot;
+            activePosition[slot] = activeCount++;
+        }
+    }
+
+    /**
+     * Отмечает слот изменившимся с последнего {@link #clearChanged()}.
+     * @param slot номер слота
+     */
+    void markChanged(int slot)
+    {
+        if (!changedMark[slot])
+        {
+            changedMark[slot] = true;
+            changed[changedCount++] = slot;
+        }
+    }
+
+    /**
+     * Запоминает пройденные шагом слоты и исключает из активного множества роботов, которые на последнем шаге
+     * остались у цели. Порядок оставшихся роботов сохраняется.
+     */
+    private void compactActive()
+    {
+        int kept = 0;
+        for (int k = 0; k < activeCount; k++)
+        {
+            final int slot = active[k];
+            stepped[k] = slot;
+            markChanged(slot);
+            if (settled[k])
+            {
+                activePosition[slot] = -1;
+            } else
+            {
+                active[kept] = slot;
+                activePosition[slot] = kept++;
+            }
+        }
+        steppedCount = activeCount;
+        activeCount = kept;
+    }
+
+    /**
+     * Выполняет один шаг симуляции для всех активных роботов парка.
+     * @param deltaTime шаг времени
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     */
+    public void step(double deltaTime, double boundsX, double boundsY)
+    {
+        stepActive(0, activeCount, deltaTime, boundsX, boundsY);
+        compactActive();
+    }
+
+    /**
+     * Выполняет один шаг симуляции для всех активных роботов парка, разбивая их на части и обрабатывая части в пуле.
+     * Если активных роботов не больше, чем в одной части, шаг выполняется на вызывающем потоке.
+     * @param deltaTime шаг времени
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     * @param pool пул потоков
+     * @param chunkSize наибольшее число роботов в одной части
+     */
+    public void stepParallel(double deltaTime, double boundsX, double boundsY, ForkJoinPool pool, int chunkSize)
+    {
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (activeCount <= chunkSize)
+        {
+            step(deltaTime, boundsX, boundsY);
+            return;
+        }
+        pool.invoke(new StepTask(this, 0, activeCount, chunkSize, deltaTime, boundsX, boundsY));
+        compactActive();
+    }
+
+    /**
+     * Выполняет один шаг симуляции для активных роботов с позициями {@code [from, to)} в активном множестве
+     * и отмечает роботов, оставшихся у цели. Само множество не меняется, поэтому части можно обрабатывать параллельно.
+     * @param from первая позиция
+     * @param to позиция, следующая за последней
+     * @param deltaTime шаг времени
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     */
+    void stepActive(int from, int to, double deltaTime, double boundsX, double boundsY)
+    {
+        kernel.step(this, from, to, deltaTime, boundsX, boundsY);
+    }
+
+    /**
+     * Двигает робота из указанного слота в направлении его цели.
+     * Если робот уже у цели и в его очереди есть путевые точки, целью становится следующая точка.
+     * Метод не меняет активное множество и не отмечает слот изменившимся: это делает шаг парка после обхода
+     * активных роботов ({@link #step}).
+     * @param slot номер слота
+     * @param deltaTime шаг времени
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     * @return true, если робот стоит у цели и его очередь пуста, то есть шаг его не сдвинул
+     */
+    public boolean stepRobot(int slot, double deltaTime, double boundsX, double boundsY)
+    {
+        final double px = x[slot];
+        final double py = y[slot];
+        final double tx = targetX[slot];
+        final double ty = targetY[slot];
+        final double distX = tx - px;
+        final double distY = ty - py;
+
+        if (Math.sqrt(distX * distX + distY * distY) < TARGET_CLOSE_ENOUGH)
+        {
+            if (waypointCount[slot] > 0)
+            {
+                // Робот уже активен; шаг может идти параллельно, поэтому активное множество здесь не меняется
+                takeWaypoint(slot);
+                return false;
+            }
+            return true;
+        }
+
+        final double angleRobotTarget = RobotsMath.angleTo(math, px, py, tx, ty);
+        final double dir = direction[slot];
+        final double omega = angularVelocity[slot];
+
+        if (Math.abs(omega) < ANGULAR_VELOCITY || Math.abs(dir - angleRobotTarget) < EPSILON)
+        {
+            x[slot] = px + SPEED * math.cos(dir) * deltaTime;
+            y[slot] = py + SPEED * math.sin(dir) * deltaTime;
+            return false;
+        }
+
+        final double newAngle = RobotsMath.asNormalizedRadians(dir + omega * deltaTime);
+
+        final double dx = SPEED / omega * (math.sin(newAngle) - math.sin(dir));
+        final double dy = SPEED / omega * (math.cos(newAngle) - math.cos(dir));
+
+        x[slot] = px + dx * RobotsMath.speedFactor(px, boundsX);
+        y[slot] = py + -dy * RobotsMath.speedFactor(py, boundsY);
+        direction[slot] = newAngle;
+        return false;
+    }
+
+    /**
+     * Устанавливает цель робота и выбирает направление поворота к ней.
+     * @param slot номер слота
+     * @param newTargetX координата x цели
+     * @param newTargetY координата y цели
+     */
+    public void setTarget(int slot, double newTargetX, double newTargetY)
+    {
+        activate(slot);
+        aim(slot, newTargetX, newTargetY);
+    }
+
+    /**
+     * Устанавливает цель робота и направление поворота к ней, не меняя активного множества.
+     */
+    private void aim(int slot, double newTargetX, double newTargetY)
+    {
+        targetX[slot] = newTargetX;
+        targetY[slot] = newTargetY;
+
+        if (RobotsMath.angleTo(math, x[slot], y[slot], newTargetX, newTargetY) > direction[slot])
+        {
+            angularVelocity[slot] = -ANGULAR_VELOCITY;
+        } else
+        {
+            angularVelocity[slot] = ANGULAR_VELOCITY;
+        }
+    }
+
+    /**
+     * Добавляет путевую точку в конец очереди робота.
+     * @param slot номер слота
+     * @param waypointX координата x точки
+     * @param waypointY координата y точки
+     */
+    public void addWaypoint(int slot, double waypointX, double waypointY)
+    {
+        ensureWaypointCapacity(slot, 1);
+        final double[] queue = waypoints[slot];
+        final int capacity = queue.length / 2;
+        final int tail = (waypointHead[slot] + waypointCount[slot]) % capacity;
+        queue[2 * tail] = waypointX;
+        queue[2 * tail + 1] = waypointY;
+        waypointCount[slot]++;
+        activate(slot);
+    }
+
+    /**
+     * Добавляет в конец очереди робота несколько путевых точек за один вызов.
+     * @param slot номер слота
+     * @param coordinates координаты точек подряд: x0, y0, x1, y1, ...
+     * @param offset индекс первой координаты
+     * @param count число точек
+     */
+    public void addWaypoints(int slot, double[] coordinates, int offset, int count)
+    {
+        if (count < 0 || offset < 0 || offset + 2 * count > coordinates.length)
+        {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", count=" + count + ", length=" + coordinates.length);
+        }
+        ensureWaypointCapacity(slot, count);
+        for (int i = 0; i < count; i++)
+        {
+            addWaypoint(slot, coordinates[offset + 2 * i], coordinates[offset + 2 * i + 1]);
+        }
+    }
+
+    /**
+     * Очищает очередь путевых точек робота. Текущая цель не меняется.
+     * @param slot номер слота
+     */
+    public void clearWaypoints(int slot)
+    {
+        waypointHead[slot] = 0;
+        waypointCount[slot] = 0;
+    }
+
+    /**
+     * Возвращает число путевых точек в очереди робота, не считая текущей цели.
+     * @param slot номер слота
+     * @return число путевых точек
+     */
+    public int getWaypointCount(int slot)
+    {
+        return waypointCount[slot];
+    }
+
+    /**
+     * Копирует путевые точки робота в порядке очереди.
+     * @param slot номер слота
+     * @return координаты точек подряд: x0, y0, x1, y1, ...
+     */
+    double[] getWaypoints(int slot)
+    {
+        final int count = waypointCount[slot];
+        final double[] result = new double[2 * count];
+        if (count == 0)
+        {
+            return result;
+        }
+        final double[] queue = waypoints[slot];
+        final int capacity = queue.length / 2;
+        final int head = waypointHead[slot];
+        for (int i = 0; i < count; i++)
+        {
+            final int from = (head + i) % capacity;
+            result[2 * i] = queue[2 * from];
+            result[2 * i + 1] = queue[2 * from + 1];
+        }
+        return result;
+    }
+
+    /**
+     * Делает следующую путевую точку из очереди целью робота.
+     * @param slot номер слота
+     */
+    void advanceWaypoint(int slot)
+    {
+        activate(slot);
+        takeWaypoint(slot);
+    }
+
+    /**
+     * Делает следующую путевую точку целью робота, не меняя активного множества.
+     */
+    private void takeWaypoint(int slot)
+    {
+        final double[] queue = waypoints[slot];
+        final int head = waypointHead[slot];
+        waypointHead[slot] = (head + 1) % (queue.length / 2);
+        waypointCount[slot]--;
+        aim(slot, queue[2 * head], queue[2 * head + 1]);
+    }
+
+    /**
+     * Увеличивает очередь робота так, чтобы в нее поместилось еще {@code extra} точек.
+     * @param slot номер слота
+     * @param extra число добавляемых точек
+     */
+    private void ensureWaypointCapacity(int slot, int extra)
+    {
+        final double[] queue = waypoints[slot];
+        final int count = waypointCount[slot];
+        final int capacity = queue == null ? 0 : queue.length / 2;
+        if (count + extra <= capacity)
+        {
+            return;
+        }
+        final int newCapacity = Math.max(Math.max(4, capacity * 2), count + extra);
+        final double[] newQueue = new double[2 * newCapacity];
+        final int head = waypointHead[slot];
+        for (int i = 0; i < count; i++)
+        {
+            final int from = (head + i) % capacity;
+            newQueue[2 * i] = queue[2 * from];
+            newQueue[2 * i + 1] = queue[2 * from + 1];
+        }
+        waypoints[slot] = newQueue;
+        waypointHead[slot] = 0;
+    }
+
+    /**
+     * Устанавливает набор тригонометрических функций для шага симуляции.
+     * @param newMath набор функций, например {@link MathBackend#EXACT} или {@link MathBackend#FAST}
+     */
+    public void setMathBackend(MathBackend newMath)
+    {
+        this.math = newMath;
+    }
+
+    /**
+     * Возвращает набор тригонометрических функций шага симуляции.
+     * @return набор функций
+     */
+    public MathBackend getMathBackend()
+    {
+        return math;
+    }
+
+    /**
+     * Устанавливает ядро шага симуляции.
+     * <p>
+     * Векторное ядро вычисляет тригонометрию своими средствами и не использует набор функций
+     * {@link #setMathBackend(MathBackend)}. Его результат может отличаться от обычного цикла в последних битах,
+     * и для него не гарантируется побитовое совпадение параллельного шага с последовательным.
+     * @param newKernel ядро, например {@link StepKernel#SCALAR} или {@link StepKernel#VECTOR}
+     */
+    public void setStepKernel(StepKernel newKernel)
+    {
+        this.kernel = newKernel;
+    }
+
+    /**
+     * Возвращает ядро шага симуляции.
+     * @return ядро шага
+     */
+    public StepKernel getStepKernel()
+    {
+        return kernel;
+    }
+
+    /**
+     * Переносит робота в указанную точку.
+     * @param slot номер слота
+     * @param newX координата x
+     * @param newY координата y
+     */
+    public void setPosition(int slot, double newX, double newY)
+    {
+        x[slot] = newX;
+        y[slot] = newY;
+        activate(slot);
+    }
+
+    /**
+     * Создает независимую копию парка, например для расчетов «что если».
+     * @return копия парка
+     */
+    public RobotFleet copy()
+    {
+        final RobotFleet copy = new RobotFleet(Math.max(size, 1));
+        copy.size = size;
+        copy.math = math;
+        copy.kernel = kernel;
+        System.arraycopy(x, 0, copy.x, 0, size);
+        System.arraycopy(y, 0, copy.y, 0, size);
+        System.arraycopy(direction, 0, copy.direction, 0, size);
+        System.arraycopy(angularVelocity, 0, copy.angularVelocity, 0, size);
+        System.arraycopy(targetX, 0, copy.targetX, 0, size);
+        System.arraycopy(targetY, 0, copy.targetY, 0, size);
+        System.arraycopy(waypointHead, 0, copy.waypointHead, 0, size);
+        System.arraycopy(waypointCount, 0, copy.waypointCount, 0, size);
+        System.arraycopy(active, 0, copy.active, 0, activeCount);
+        System.arraycopy(activePosition, 0, copy.activePosition, 0, size);
+        copy.activeCount = activeCount;
+        copy.allChanged = true;
+        for (int i = 0; i < size; i++)
+        {
+            copy.waypoints[i] = waypoints[i] == null ? null : waypoints[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Смещает робота на указанный вектор.
+     * @param slot номер слота
+     * @param dx смещение по x
+     * @param dy смещение по y
+     */
+    public void move(int slot, double dx, double dy)
+    {
+        x[slot] = x[slot] + dx;
+        y[slot] = y[slot] + dy;
+        activate(slot);
+    }
+
+    /**
+     * Копирует столбцы состояния всех роботов в переданные массивы.
+     * @param toX массив для координат x
+     * @param toY массив для координат y
+     * @param toDirection массив для направлений
+     * @param toTargetX массив для координат x целей
+     * @param toTargetY массив для координат y целей
+     */
+    void copyTo(double[] toX, double[] toY, double[] toDirection, double[] toTargetX, double[] toTargetY)
+    {
+        System.arraycopy(x, 0, toX, 0, size);
+        System.arraycopy(y, 0, toY, 0, size);
+        System.arraycopy(direction, 0, toDirection, 0, size);
+        System.arraycopy(targetX, 0, toTargetX, 0, size);
+        System.arraycopy(targetY, 0, toTargetY, 0, size);
+    }
+
+    /**
+     * Записывает в буфер подряд все столбцы состояния: x, y, direction, angularVelocity, targetX и targetY.
+     * Очереди путевых точек не записываются.
+     * @param target буфер, позиция которого сдвигается на {@code 6 * size()} чисел
+     */
+    void exportColumns(DoubleBuffer target)
+    {
+        target.put(x, 0, size).put(y, 0, size).put(direction, 0, size)
+                .put(angularVelocity, 0, size).put(targetX, 0, size).put(targetY, 0, size);
+    }
+
+    /**
+     * Заменяет содержимое парка столбцами, записанными {@link #exportColumns(DoubleBuffer)}.
+     * Очереди путевых точек всех роботов становятся пустыми, все роботы становятся активными.
+     * @param source буфер, позиция которого сдвигается на {@code 6 * count} чисел
+     * @param count число роботов
+     */
+    void importColumns(DoubleBuffer source, int count)
+    {
+        while (x.length < count)
+        {
+            grow();
+        }
+        source.get(x, 0, count).get(y, 0, count).get(direction, 0, count)
+                .get(angularVelocity, 0, count).get(targetX, 0, count).get(targetY, 0, count);
+        Arrays.fill(waypoints, 0, count, null);
+        Arrays.fill(waypointHead, 0, count, 0);
+        Arrays.fill(waypointCount, 0, count, 0);
+        for (int i = 0; i < count; i++)
+        {
+            active[i] = i;
+            activePosition[i] = i;
+        }
+        activeCount = count;
+        steppedCount = 0;
+        size = count;
+        allChanged = true;
+    }
+
+    /**
+     * Записывает в буфер подряд столбцы x, y и direction первых {@code count} роботов.
+     * @param target буфер
+     * @param index позиция в буфере
+     * @param count число роботов; роботы сверх размера парка записываются нулями
+     */
+    void copyColumns(DoubleBuffer target, int index, int count)
+    {
+        final int copied = Math.min(count, size);
+        target.put(index, x, 0, copied);
+        target.put(index + count, y, 0, copied);
+        target.put(index + 2 * count, direction, 0, copied);
+    }
+
+    /**
+     * Проверяет, достиг ли робот своей цели, то есть находится ли он ближе {@link #TARGET_CLOSE_ENOUGH} к ней
+     * и не осталось ли путевых точек в его очереди.
+     * @param slot номер слота
+     * @return true, если робот прошел весь маршрут
+     */
+    public boolean isArrived(int slot)
+    {
+        if (waypointCount[slot] > 0)
+        {
+            return false;
+        }
+        final double distX = targetX[slot] - x[slot];
+        final double distY = targetY[slot] - y[slot];
+        return Math.sqrt(distX * distX + distY * distY) < TARGET_CLOSE_ENOUGH;
+    }
+
+    /**
+     * Возвращает число роботов, прошедших весь маршрут.
+     * @return число роботов у цели
+     */
+    public int countArrived()
+    {
+        int arrived = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (isArrived(i))
+            {
+                arrived++;
+            }
+        }
+        return arrived;
+    }
+
+    /**
+     * Возвращает число активных роботов, то есть роботов, которых обходит шаг симуляции.
+     * Робот покидает активное множество на шаге, когда он стоит у цели с пустой очередью.
+     * @return число активных роботов
+     */
+    public int getActiveCount()
+    {
+        return activeCount;
+    }
+
+    /**
+     * Возвращает количество роботов в парке.
+     * @return количество роботов
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Возвращает скорость роботов парка.
+     * @return скорость
+     */
+    public double getSpeed()
+    {
+        return SPEED;
+    }
+
+    /**
+     * Возвращает координату x робота.
+     * @param slot номер слота
+     * @return координата x
+     */
+    public double getX(int slot)
+    {
+        return x[slot];
+    }
+
+    /**
+     * Возвращает координату y робота.
+     * @param slot номер слота
+     * @return координата y
+     */
+    public double getY(int slot)
+    {
+        return y[slot];
+    }
+
+    /**
+     * Возвращает направление движения робота.
+     * @param slot номер слота
+     * @return направление в радианах
+     */
+    public double getDirection(int slot)
+    {
+        return direction[slot];
+    }
+
+    /**
+     * Устанавливает направление движения робота.
+     * @param slot номер слота
+     * @param newDirection направление в радианах
+     */
+    public void setDirection(int slot, double newDirection)
+    {
+        direction[slot] = newDirection;
+        markChanged(slot);
+    }
+
+    /**
+     * Возвращает угловую скорость робота.
+     * @param slot номер слота
+     * @return угловая скорость
+     */
+    public double getAngularVelocity(int slot)
+    {
+        return angularVelocity[slot];
+    }
+
+    /**
+     * Устанавливает угловую скорость робота.
+     * @param slot номер слота
+     * @param newAngularVelocity угловая скорость
+     */
+    public void setAngularVelocity(int slot, double newAngularVelocity)
+    {
+        angularVelocity[slot] = newAngularVelocity;
+    }
+
+    /**
+     * Возвращает координату x цели робота.
+     * @param slot номер слота
+     * @return координата x цели
+     */
+    public double getTargetX(int slot)
+    {
+        return targetX[slot];
+    }
+
+    /**
+     * Возвращает координату y цели робота.
+     * @param slot номер слота
+     * @return координата y цели
+     */
+    public double getTargetY(int slot)
+    {
+        return targetY[slot];
+    }
+
+    /*
+     * Столбцы состояния для ядер шага. Массивы заменяются при росте парка,
+     * поэтому ядро получает их заново при каждом вызове.
+     */
+
+    double[] xColumn()
+    {
+        return x;
+    }
+
+    double[] yColumn()
+    {
+        return y;
+    }
+
+    double[] directionColumn()
+    {
+        return direction;
+    }
+
+    double[] angularVelocityColumn()
+    {
+        return angularVelocity;
+    }
+
+    double[] targetXColumn()
+    {
+        return targetX;
+    }
+
+    double[] targetYColumn()
+    {
+        return targetY;
+    }
+
+    int[] activeSlots()
+    {
+        return active;
+    }
+
+    boolean[] settledFlags()
+    {
+        return settled;
+    }
+
+    /*
+     * Слоты, пройденные последним шагом, то есть активные к его началу: кроме сдвинутых шагом, сюда входят все
+     * роботы, которых с предыдущего шага сдвинули или перенацелили команды и столкновения.
+     */
+
+    int[] steppedSlots()
+    {
+        return stepped;
+    }
+
+    int getSteppedCount()
+    {
+        return steppedCount;
+    }
+
+    /*
+     * Слоты, у которых с последнего clearChanged() менялись позиция, направление, цель или очередь точек.
+     * Если isAllChanged(), список неполон и изменившимися считаются все слоты.
+     */
+
+    int[] changedSlots()
+    {
+        return changed;
+    }
+
+    int getChangedCount()
+    {
+        return changedCount;
+    }
+
+    boolean isAllChanged()
+    {
+        return allChanged;
+    }
+
+    void clearChanged()
+    {
+        for (int k = 0; k < changedCount; k++)
+        {
+            changedMark[changed[k]] = false;
+        }
+        changedCount = 0;
+        allChanged = false;
+    }
+
+    /**
+     * Задача, выполняющая шаг для диапазона позиций активного множества и делящая его пополам,
+     * пока он больше одной части.
+     */
+    private static final class StepTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RobotFleet fleet;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final double deltaTime;
+        private final double boundsX;
+        private final double boundsY;
+
+        StepTask(RobotFleet fleet, int from, int to, int chunkSize, double deltaTime, double boundsX, double boundsY)
+        {
+            this.fleet = fleet;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.deltaTime = deltaTime;
+            this.boundsX = boundsX;
+            this.boundsY = boundsY;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= chunkSize)
+            {
+                fleet.stepActive(from, to, deltaTime, boundsX, boundsY);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new StepTask(fleet, from, middle, chunkSize, deltaTime, boundsX, boundsY),
+                    new StepTask(fleet, middle, to, chunkSize, deltaTime, boundsX, boundsY));
+        }
+    }
+}
\ No newline at end of file
@@ -1,51 +1,184 @@
 package model;
 
 import java.awt.geom.Point2D;
-import java.util.Observable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+
+import log.Logger;
 
 /**
- * Класс, отвечающий за логику управления роботом.
+ * Класс, отвечающий за логику управления роботами. Состояние роботов хранится в парке {@link RobotFleet},
+ * а робот из нулевого слота доступен через {@link #getRobot()}.
+ * <p>
+ * Шаги симуляции выполняет {@link SimulationScheduler} на собственном потоке. Вспомогательные действия,
+ * например перерисовка, выполняются отдельным таймером и не могут задержать симуляцию.
+ * Подписчики получают изменения через {@link #subscribe} с заявленной частотой, вне потока симуляции.
+ * <p>
+ * Все входные команды (цель, границы окна, маршруты и т. п.) применяются на границе шагов перед очередным шагом,
+ * поэтому их можно записать в журнал с номером шага и воспроизвести точно ({@link JournalReplay}).
  */
-public class RobotsLogic extends Observable
+public class RobotsLogic
 {
-    private static final double ANGULAR_VELOCITY = 0.001;
-    private static final double TARGET_CLOSE_ENOUGH = 5;
-    private final static double EPSILON = 0.05;
+    static final int MAX_CATCH_UP_TICKS = 10;
+
+    private final RobotFleet fleet;
     private final Robot robot;
     private Target target;
     private final long deltaTime = 5;
+    private final SimulationScheduler scheduler =
+            new SimulationScheduler("simulation", this::tick, TimeUnit.MILLISECONDS.toNanos(deltaTime), MAX_CATCH_UP_TICKS);
     private Timer timer;
-    private Point2D.Double windowBounds = new Point2D.Double(300, 300);
+    private boolean sessionAttached;
+    private volatile int parallelism = 1;
+    private volatile ForkJoinPool stepPool;
+    private volatile int chunkSize = RobotFleet.DEFAULT_CHUNK_SIZE;
+    private final WorldSnapshotBuffer snapshots = new WorldSnapshotBuffer();
+    private final ChangeNotifier notifier = new ChangeNotifier(snapshots);
+    private volatile long tickCount;
+    private final ConcurrentLinkedQueue<Runnable> pendingCommands = new ConcurrentLinkedQueue<>();
+    private final Object inputLock = new Object();
+    private volatile boolean inputPending;
+    private boolean targetPending;
+    private double pendingTargetX;
+    private double pendingTargetY;
+    private boolean boundsPending;
+    private double pendingBoundsX;
+    private double pendingBoundsY;
+    private JournalWriter journal;
+    private TrajectoryRecorder trajectory;
+    private final CollisionSystem collisions = new CollisionSystem();
+    private final PathPlanner planner = new PathPlanner(PathPlanner.DEFAULT_CELL_SIZE, PathPlanner.DEFAULT_CACHE_CAPACITY);
+    private SpatialGrid robotIndex;
+    private SpatialGrid targetIndex;
+    private final Point2D.Double windowBounds = new Point2D.Double(300, 300);
 
     /**
      * Конструктор класса RobotsLogic, инициализирующий робота и цель.
      */
     public RobotsLogic()
     {
-        robot = new Robot();
+        this(new RobotFleet());
         target = new Target(50, 50);
         setTarget(target);
         moveRobot();
+        publishSnapshot();
     }
 
     /**
-     * Запускает таймер для генерации событий.
+     * Конструктор класса RobotsLogic поверх готового парка роботов.
+     * Робот из нулевого слота считается основным; его слот будет создан, если парк пуст.
+     * @param fleet парк роботов
      */
-    public void startTimer()
+    public RobotsLogic(RobotFleet fleet)
     {
-        timer = new Timer("event generator", true);
-        addActionToTimer(new TimerTask()
+        this.fleet = fleet;
+        collisions.setRobotCollisionsEnabled(false);
+        if (fleet.size() == 0)
         {
-            @Override
-            public void run()
-            {
-                moveRobot();
-                setChanged();
-                notifyObservers();
-            }
-        }, deltaTime);
+            fleet.addRobot(100, 100, 0);
+        }
+        this.robot = new Robot(fleet, 0);
+        this.target = new Target();
+        target.getPosition().setLocation(fleet.getTargetX(0), fleet.getTargetY(0));
+        publishSnapshot();
+    }
+
+    /**
+     * Запускает планировщик симуляции и таймер вспомогательных действий.
+     * @throws IllegalStateException если шаги логики выполняет сеанс {@link SimulationSessionManager}
+     */
+    public synchronized void startTimer()
+    {
+        if (sessionAttached)
+        {
+            throw new IllegalStateException("Logic is driven by a simulation session");
+        }
+        if (timer == null)
+        {
+            timer = new Timer("event generator", true);
+        }
+        scheduler.start();
+    }
+
+    /**
+     * Закрепляет логику за сеансом {@link SimulationSessionManager}: пока сеанс не остановлен, шаги логики
+     * выполняет только он.
+     * @throws IllegalStateException если логику уже выполняет собственный планировщик или другой сеанс
+     */
+    synchronized void attachSession()
+    {
+        if (scheduler.isRunning())
+        {
+            throw new IllegalStateException("Logic is already driven by its own scheduler");
+        }
+        if (sessionAttached)
+        {
+            throw new IllegalStateException("Logic is already attached to a session");
+        }
+        sessionAttached = true;
+    }
+
+    /**
+     * Освобождает логику после остановки сеанса, который выполнял ее шаги.
+     */
+    synchronized void detachSession()
+    {
+        sessionAttached = false;
+        releaseStepPool();
+    }
+
+    /**
+     * Выполняет один шаг симуляции и публикует кадр состояния мира.
+     * Вызывается собственным планировщиком или менеджером сеансов {@link SimulationSessionManager}.
+     */
+    void tick()
+    {
+        moveRobots();
+        publishSnapshot();
+    }
+
+    /**
+     * Подписывает слушателя на изменения симуляции. Изменения между уведомлениями сливаются,
+     * слушатель вызывается не чаще {@code maxRate} раз в секунду на указанном исполнителе.
+     * @param listener слушатель
+     * @param maxRate наибольшее число уведомлений в секунду
+     * @param executor исполнитель, на котором вызывается слушатель
+     * @return подписка
+     */
+    public ChangeNotifier.Subscription subscribe(SimulationListener listener, double maxRate, Executor executor)
+    {
+        return notifier.subscribe(listener, maxRate, executor);
+    }
+
+    /**
+     * Публикует кадр текущего состояния мира.
+     */
+    private void publishSnapshot()
+    {
+        snapshots.publish(tickCount, fleet, windowBounds.getX(), windowBounds.getY());
+    }
+
+    /**
+     * Занимает последний опубликованный кадр состояния мира. Кадр публикуется после каждого шага симуляции;
+     * чтение кадра не блокирует симуляцию. Кадр нужно закрыть после использования.
+     * @return кадр состояния мира
+     */
+    public WorldSnapshot acquireSnapshot()
+    {
+        return snapshots.acquire();
     }
 
     /**
@@ -53,47 +186,768 @@ public class RobotsLogic extends Observable
      */
     public void moveRobot()
     {
-        if (robot.getPosition().distance(target.getPosition()) < TARGET_CLOSE_ENOUGH) return;
+        applyPendingCommands();
+        fleet.stepRobot(0, deltaTime, windowBounds.getX(), windowBounds.getY());
+        fleet.markChanged(0);
+    }
+
+    /**
+     * Двигает всех роботов парка в направлении их целей и увеличивает счетчик шагов.
+     */
+    public void moveRobots()
+    {
+        if (applyPendingCommands() && robotIndex != null)
+        {
+            // Робот, которого сдвинула или перенацелила команда, может остаться у цели на этом шаге
+            // и покинуть активное множество раньше, чем индексы обновятся после шага
+            refreshActiveInIndex();
+        }
+        if (parallelism == 1)
+        {
+            fleet.step(deltaTime, windowBounds.getX(), windowBounds.getY());
+        } else
+        {
+            fleet.stepParallel(deltaTime, windowBounds.getX(), windowBounds.getY(), stepPool(), chunkSize);
+        }
+        collisions.resolve(fleet, windowBounds.getX(), windowBounds.getY());
+        tickCount++;
+        if (robotIndex != null)
+        {
+            refreshActiveInIndex();
+        }
+        if (trajectory != null)
+        {
+            recordTrajectory();
+        }
+    }
 
-        final double angleRobotTarget = RobotsMath.angleTo(robot.getPosition(), target.getPosition());
+    /**
+     * Записывает состояние роботов после шага. При ошибке записи запись траекторий прекращается.
+     */
+    private void recordTrajectory()
+    {
+        try
+        {
+            trajectory.record(tickCount, fleet);
+        } catch (IOException e)
+        {
+            Logger.error("Запись траекторий прервана: " + e);
+            closeTrajectory();
+        }
+    }
 
-        if (Math.abs(robot.getAngularVelocity()) < ANGULAR_VELOCITY || Math.abs(robot.getDirection() - angleRobotTarget) < EPSILON)
+    /**
+     * Возвращает число выполненных шагов симуляции.
+     * @return число шагов
+     */
+    public long getTickCount()
+    {
+        return tickCount;
+    }
+
+    /**
+     * Устанавливает счетчик шагов и публикует кадр с новым номером шага;
+     * используется при воспроизведении журнала и восстановлении контрольной точки.
+     * @param newTickCount число шагов
+     */
+    void setTickCount(long newTickCount)
+    {
+        this.tickCount = newTickCount;
+        publishSnapshot();
+    }
+
+    /**
+     * Включает пространственные индексы роботов и целей по текущим границам окна.
+     * После каждого шага индексы обновляются инкрементально: просматриваются только роботы из активного множества
+     * парка (остальные не двигались и не меняли цели), а перестраиваются только ссылки точек, сменивших ячейку.
+     * Индексы не потокобезопасны, поэтому запросы к ним следует выполнять на потоке симуляции, например из наблюдателей.
+     * @param cellSize размер ячейки сетки
+     */
+    public void enableSpatialIndex(double cellSize)
+    {
+        robotIndex = new SpatialGrid(windowBounds.getX(), windowBounds.getY(), cellSize);
+        targetIndex = new SpatialGrid(windowBounds.getX(), windowBounds.getY(), cellSize);
+        refreshSpatialIndex();
+    }
+
+    /**
+     * Переносит в индексы текущие позиции всех роботов и их целей.
+     */
+    private void refreshSpatialIndex()
+    {
+        final int size = fleet.size();
+        for (int i = 0; i < size; i++)
+        {
+            robotIndex.update(i, fleet.getX(i), fleet.getY(i));
+            targetIndex.update(i, fleet.getTargetX(i), fleet.getTargetY(i));
+        }
+    }
+
+    /**
+     * Переносит в индексы позиции и цели роботов из активного множества. Любое изменение позиции или цели
+     * робота (шаг, столкновение, команда) возвращает его в активное множество, поэтому остальные роботы
+     * в индексах актуальны.
+     */
+    private void refreshActiveInIndex()
+    {
+        final int[] active = fleet.activeSlots();
+        final int count = fleet.getActiveCount();
+        for (int k = 0; k < count; k++)
+        {
+            final int slot = active[k];
+            robotIndex.update(slot, fleet.getX(slot), fleet.getY(slot));
+            targetIndex.update(slot, fleet.getTargetX(slot), fleet.getTargetY(slot));
+        }
+    }
+
+    /**
+     * Возвращает пространственный индекс роботов; идентификаторы точек совпадают с номерами слотов парка.
+     * @return индекс роботов или null, если индексы не включены
+     */
+    public SpatialGrid getRobotIndex()
+    {
+        return robotIndex;
+    }
+
+    /**
+     * Возвращает пространственный индекс целей; идентификатор цели совпадает с номером слота ее робота.
+     * @return индекс целей или null, если индексы не включены
+     */
+    public SpatialGrid getTargetIndex()
+    {
+        return targetIndex;
+    }
+
+    /**
+     * Находит цель, ближайшую к точке.
+     * @param x координата x
+     * @param y координата y
+     * @return номер слота робота, которому принадлежит цель, или -1, если целей нет
+     */
+    public int nearestTarget(double x, double y)
+    {
+        return requireIndex(targetIndex).nearest(x, y);
+    }
+
+    /**
+     * Передает в {@code action} номера слотов роботов, находящихся ближе {@code radius} к точке.
+     * @param x координата x
+     * @param y координата y
+     * @param radius радиус
+     * @param action получатель номеров слотов
+     * @return число найденных роботов
+     */
+    public int robotsWithin(double x, double y, double radius, IntConsumer action)
+    {
+        return requireIndex(robotIndex).forEachWithin(x, y, radius, action);
+    }
+
+    /**
+     * Передает в {@code action} номера слотов роботов, достигших точки, то есть находящихся от нее
+     * ближе {@link RobotFleet#TARGET_CLOSE_ENOUGH}.
+     * @param x координата x точки
+     * @param y координата y точки
+     * @param action получатель номеров слотов
+     * @return число найденных роботов
+     */
+    public int robotsAt(double x, double y, IntConsumer action)
+    {
+        return requireIndex(robotIndex).forEachWithin(x, y, RobotFleet.TARGET_CLOSE_ENOUGH, action);
+    }
+
+    private static SpatialGrid requireIndex(SpatialGrid index)
+    {
+        if (index == null)
+        {
+            throw new IllegalStateException("spatial index is not enabled");
+        }
+        return index;
+    }
+
+    /**
+     * Применяет команды, ожидающие следующего шага, не выполняя сам шаг, и публикует кадр. Нужен, когда
+     * планировщик остановлен: например, чтобы сохранить контрольную точку после закрытия игрового окна.
+     * При работающем планировщике или сеансе команды применит он, и метод ничего не делает.
+     */
+    public synchronized void applyCommands()
+    {
+        if (scheduler.isRunning() || sessionAttached)
         {
-            robot.move(new Point2D.Double(
-                    robot.getSpeed() * Math.cos(robot.getDirection()) * deltaTime,
-                    robot.getSpeed() * Math.sin(robot.getDirection()) * deltaTime
-            ));
             return;
         }
+        if (applyPendingCommands() && robotIndex != null)
+        {
+            refreshActiveInIndex();
+        }
+        publishSnapshot();
+    }
 
-        final double newAngle = RobotsMath.asNormalizedRadians(robot.getDirection() + robot.getAngularVelocity() * deltaTime);
+    /**
+     * Выполняет команды, переданные из других потоков, перед очередным шагом.
+     * Сначала применяются последние заданные цель и границы окна, затем команды из очереди в порядке поступления.
+     * @return true, если была применена хотя бы одна команда
+     */
+    private boolean applyPendingCommands()
+    {
+        boolean applied = false;
+        if (inputPending)
+        {
+            synchronized (inputLock)
+            {
+                if (targetPending)
+                {
+                    applyTarget(0, pendingTargetX, pendingTargetY);
+                    targetPending = false;
+                }
+                if (boundsPending)
+                {
+                    applyWindowBounds(pendingBoundsX, pendingBoundsY);
+                    boundsPending = false;
+                }
+                inputPending = false;
+            }
+            applied = true;
+        }
+        Runnable command;
+        while ((command = pendingCommands.poll()) != null)
+        {
+            command.run();
+            applied = true;
+        }
+        return applied;
+    }
 
-        final double dx = robot.getSpeed() / robot.getAngularVelocity() * (Math.sin(newAngle) - Math.sin(robot.getDirection()));
-        final double dy = robot.getSpeed() / robot.getAngularVelocity() * (Math.cos(newAngle) - Math.cos(robot.getDirection()));
+    /**
+     * Добавляет путевую точку в конец маршрута робота. Точка задается в координатах области движения
+     * и попадает в очередь перед следующим шагом симуляции.
+     * @param slot номер слота робота
+     * @param x координата x точки
+     * @param y координата y точки
+     */
+    public void addWaypoint(int slot, double x, double y)
+    {
+        pendingCommands.add(() -> applyWaypoints(slot, new double[] {x, y}));
+    }
 
-        robot.move(new Point2D.Double(
-                dx * RobotsMath.speedFactor(robot.getPosition().getX(), windowBounds.getX()),
-                -dy * RobotsMath.speedFactor(robot.getPosition().getY(), windowBounds.getY())
-        ));
-        robot.setDirection(newAngle);
+    /**
+     * Добавляет в конец маршрута робота несколько путевых точек за один вызов.
+     * Массив копируется, точки попадают в очередь перед следующим шагом симуляции.
+     * @param slot номер слота робота
+     * @param coordinates координаты точек подряд: x0, y0, x1, y1, ...
+     */
+    public void addWaypoints(int slot, double[] coordinates)
+    {
+        if (coordinates.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("coordinates must contain x, y pairs: " + coordinates.length);
+        }
+        final double[] copy = coordinates.clone();
+        pendingCommands.add(() -> applyWaypoints(slot, copy));
     }
 
     /**
-     * Добавляет действие в таймер с указанным таймаутом.
+     * Добавляет в конец маршрута робота точки из потока. Поток читается на вызывающем потоке,
+     * точки попадают в очередь перед следующим шагом симуляции.
+     * @param slot номер слота робота
+     * @param points точки маршрута
+     */
+    public void addWaypoints(int slot, Stream<? extends Point2D> points)
+    {
+        final double[] coordinates = points
+                .flatMapToDouble(point -> DoubleStream.of(point.getX(), point.getY()))
+                .toArray();
+        pendingCommands.add(() -> applyWaypoints(slot, coordinates));
+    }
+
+    /**
+     * Прокладывает маршрут робота к точке в обход препятствий (см. {@link PathPlanner}).
+     * Маршрут строится на потоке симуляции перед следующим шагом: прежние путевые точки удаляются,
+     * первая точка маршрута становится целью, остальные — путевыми точками. Если цель занята препятствием
+     * или недостижима, маршрут робота не меняется.
+     * @param slot номер слота робота
+     * @param goalX координата x цели
+     * @param goalY координата y цели
+     */
+    public void planRoute(int slot, double goalX, double goalY)
+    {
+        pendingCommands.add(() -> applyRoute(slot, goalX, goalY));
+    }
+
+    /**
+     * Очищает маршрут робота перед следующим шагом симуляции. Текущая цель не меняется.
+     * @param slot номер слота робота
+     */
+    public void clearWaypoints(int slot)
+    {
+        pendingCommands.add(() -> applyClearWaypoints(slot));
+    }
+
+    /**
+     * Перематывает всех роботов на указанное время без пошаговой симуляции (см. {@link FastForward}).
+     * Перемотка выполняется на потоке симуляции перед следующим шагом.
+     * @param duration время перемотки в тех же единицах, что и шаг симуляции
+     */
+    public void fastForward(double duration)
+    {
+        pendingCommands.add(() -> applyFastForward(duration));
+    }
+
+    /**
+     * Устанавливает набор тригонометрических функций для шага симуляции. Смена вступает в силу перед следующим шагом.
+     * @param math набор функций, например {@link MathBackend#FAST}
+     */
+    public void setMathBackend(MathBackend math)
+    {
+        pendingCommands.add(() -> applyMathBackend(math));
+    }
+
+    /**
+     * Устанавливает ядро шага симуляции. Смена вступает в силу перед следующим шагом и записывается в журнал.
+     * @param kernel ядро, например {@link StepKernel#VECTOR}
+     */
+    public void setStepKernel(StepKernel kernel)
+    {
+        pendingCommands.add(() -> applyStepKernel(kernel));
+    }
+
+    /**
+     * Начинает запись журнала входных команд. Запись начинается на границе шагов перед следующим шагом
+     * с полного состояния мира, после чего в журнал попадает каждая примененная команда с номером шага.
+     * Поток закрывается при остановке записи или остановке симуляции ({@link #stopTimer()}).
+     * @param out поток для журнала
+     */
+    public void startRecording(OutputStream out)
+    {
+        pendingCommands.add(() ->
+        {
+            closeJournal();
+            journal = new JournalWriter(out);
+            journal.writeStart(tickCount, fleet, windowBounds.getX(), windowBounds.getY());
+            journal.writeCollisions(tickCount, collisions.isRobotCollisionsEnabled(), collisions.getRobotRadius());
+            journal.writeStepKernel(tickCount, fleet.getStepKernel());
+            for (Obstacle obstacle : collisions.getObstacles())
+            {
+                journal.writeObstacle(tickCount, obstacle);
+            }
+        });
+    }
+
+    /**
+     * Останавливает запись журнала на границе шагов перед следующим шагом.
+     */
+    public void stopRecording()
+    {
+        pendingCommands.add(this::closeJournal);
+    }
+
+    /**
+     * Завершает текущий журнал, если он ведется.
+     */
+    private void closeJournal()
+    {
+        if (journal != null)
+        {
+            journal.writeEnd(tickCount);
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Добавляет неподвижное препятствие на границе шагов перед следующим шагом.
+     * Роботы, пересекающие препятствие после шага, выталкиваются из него.
+     * @param obstacle препятствие
+     */
+    public void addObstacle(Obstacle obstacle)
+    {
+        pendingCommands.add(() -> applyObstacle(obstacle));
+    }
+
+    /**
+     * Удаляет все препятствия на границе шагов перед следующим шагом.
+     */
+    public void clearObstacles()
+    {
+        pendingCommands.add(this::applyClearObstacles);
+    }
+
+    /**
+     * Настраивает столкновения роботов друг с другом на границе шагов перед следующим шагом.
+     * По умолчанию роботы проходят друг сквозь друга.
+     * @param robotCollisions true, чтобы роботы не пересекались
+     * @param robotRadius радиус робота, учитываемый также при столкновениях с препятствиями
+     */
+    public void setCollisions(boolean robotCollisions, double robotRadius)
+    {
+        if (!(robotRadius > 0))
+        {
+            throw new IllegalArgumentException("robotRadius must be positive: " + robotRadius);
+        }
+        pendingCommands.add(() -> applyCollisions(robotCollisions, robotRadius));
+    }
+
+    /**
+     * Возвращает препятствия мира. Список меняется на потоке симуляции,
+     * поэтому читать его следует там же, например из наблюдателей.
+     * @return неизменяемое представление списка препятствий
+     */
+    public List<Obstacle> getObstacles()
+    {
+        return collisions.getObstacles();
+    }
+
+    /**
+     * Возвращает планировщик маршрутов. Планировщик работает на потоке симуляции,
+     * поэтому читать его статистику следует там же, например из наблюдателей.
+     * @return планировщик маршрутов
+     */
+    public PathPlanner getPlanner()
+    {
+        return planner;
+    }
+
+    /**
+     * Сохраняет контрольную точку всего мира в файл. Состояние копируется на потоке симуляции на границе шагов
+     * перед следующим шагом, а запись в файл выполняется в фоне и не задерживает шаги.
+     * Команда применяется очередным шагом; если шаги не выполняются, ее применяет {@link #applyCommands()}.
+     * @param file файл контрольной точки; заменяется атомарно после полной записи
+     * @return результат, завершающийся после записи файла
+     */
+    public CompletableFuture<Void> saveCheckpoint(Path file)
+    {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        pendingCommands.add(() ->
+        {
+            final RobotFleet state = fleet.copy();
+            final CollisionSystem collisionState = collisions.copy();
+            final long tick = tickCount;
+            final double boundsX = windowBounds.getX();
+            final double boundsY = windowBounds.getY();
+            CompletableFuture.runAsync(() ->
+            {
+                try
+                {
+                    Checkpoint.write(file, state, collisionState, tick, boundsX, boundsY);
+                    result.complete(null);
+                } catch (IOException e)
+                {
+                    result.completeExceptionally(e);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Начинает запись траекторий в отображаемые в память сегменты указанного каталога.
+     * Запись начинается со следующего шага и охватывает роботов, имеющихся в парке к ее началу.
+     * @param directory каталог для сегментов
+     * @param ticksPerSegment число шагов в одном сегменте
+     */
+    public void startTrajectoryRecording(Path directory, int ticksPerSegment)
+    {
+        pendingCommands.add(() ->
+        {
+            closeTrajectory();
+            try
+            {
+                trajectory = new TrajectoryRecorder(directory, fleet.size(), ticksPerSegment);
+            } catch (IOException e)
+            {
+                Logger.error("Не удалось начать запись траекторий: " + e);
+            }
+        });
+    }
+
+    /**
+     * Останавливает запись траекторий на границе шагов перед следующим шагом.
+     */
+    public void stopTrajectoryRecording()
+    {
+        pendingCommands.add(this::closeTrajectory);
+    }
+
+    /**
+     * Завершает текущую запись траекторий, если она ведется.
+     */
+    private void closeTrajectory()
+    {
+        if (trajectory != null)
+        {
+            try
+            {
+                trajectory.close();
+            } catch (IOException e)
+            {
+                Logger.error("Не удалось завершить запись траекторий: " + e);
+            }
+            trajectory = null;
+        }
+    }
+
+    /**
+     * Применяет цель робота и записывает команду в журнал.
+     */
+    void applyTarget(int slot, double x, double y)
+    {
+        fleet.setTarget(slot, x, y);
+        if (journal != null)
+        {
+            journal.writeTarget(tickCount, slot, x, y);
+        }
+    }
+
+    /**
+     * Применяет границы окна и записывает команду в журнал.
+     */
+    void applyWindowBounds(double width, double height)
+    {
+        windowBounds.setLocation(width, height);
+        if (journal != null)
+        {
+            journal.writeBounds(tickCount, width, height);
+        }
+    }
+
+    /**
+     * Добавляет путевые точки и записывает команду в журнал.
+     */
+    void applyWaypoints(int slot, double[] coordinates)
+    {
+        fleet.addWaypoints(slot, coordinates, 0, coordinates.length / 2);
+        if (journal != null)
+        {
+            journal.writeWaypoints(tickCount, slot, coordinates);
+        }
+    }
+
+    /**
+     * Прокладывает маршрут робота. В журнал попадают полученные цель и путевые точки,
+     * поэтому воспроизведение не зависит от планировщика и его кэша.
+     */
+    private void applyRoute(int slot, double goalX, double goalY)
+    {
+        final double[] route = planner.plan(collisions, windowBounds.getX(), windowBounds.getY(),
+                fleet.getX(slot), fleet.getY(slot), goalX, goalY);
+        if (route == null)
+        {
+            Logger.debug("Маршрут к точке ({}, {}) не найден", goalX, goalY);
+            return;
+        }
+        applyClearWaypoints(slot);
+        applyTarget(slot, route[0], route[1]);
+        if (route.length > 2)
+        {
+            applyWaypoints(slot, Arrays.copyOfRange(route, 2, route.length));
+        }
+    }
+
+    /**
+     * Очищает маршрут и записывает команду в журнал.
+     */
+    void applyClearWaypoints(int slot)
+    {
+        fleet.clearWaypoints(slot);
+        if (journal != null)
+        {
+            journal.writeClearWaypoints(tickCount, slot);
+        }
+    }
+
+    /**
+     * Перематывает роботов и записывает команду в журнал.
+     */
+    void applyFastForward(double duration)
+    {
+        FastForward.advanceAll(fleet, duration, windowBounds.getX(), windowBounds.getY());
+        if (journal != null)
+        {
+            journal.writeFastForward(tickCount, duration);
+        }
+    }
+
+    /**
+     * Добавляет препятствие и записывает команду в журнал.
+     */
+    void applyObstacle(Obstacle obstacle)
+    {
+        collisions.addObstacle(obstacle);
+        if (journal != null)
+        {
+            journal.writeObstacle(tickCount, obstacle);
+        }
+    }
+
+    /**
+     * Удаляет все препятствия и записывает команду в журнал.
+     */
+    void applyClearObstacles()
+    {
+        collisions.clearObstacles();
+        if (journal != null)
+        {
+            journal.writeClearObstacles(tickCount);
+        }
+    }
+
+    /**
+     * Меняет настройки столкновений роботов и записывает команду в журнал.
+     */
+    void applyCollisions(boolean robotCollisions, double robotRadius)
+    {
+        collisions.setRobotCollisionsEnabled(robotCollisions);
+        collisions.setRobotRadius(robotRadius);
+        if (journal != null)
+        {
+            journal.writeCollisions(tickCount, robotCollisions, robotRadius);
+        }
+    }
+
+    /**
+     * Меняет набор тригонометрических функций и записывает команду в журнал.
+     */
+    void applyMathBackend(MathBackend math)
+    {
+        fleet.setMathBackend(math);
+        if (journal != null)
+        {
+            journal.writeMathBackend(tickCount, math);
+        }
+    }
+
+    /**
+     * Меняет ядро шага и записывает команду в журнал.
+     */
+    void applyStepKernel(StepKernel kernel)
+    {
+        fleet.setStepKernel(kernel);
+        if (journal != null)
+        {
+            journal.writeStepKernel(tickCount, kernel);
+        }
+    }
+
+    /**
+     * Устанавливает число потоков для шага симуляции. При значении 1 шаг выполняется последовательно
+     * на потоке симуляции; при большем значении роботы обрабатываются частями в собственном {@link ForkJoinPool}.
+     * Результат шага не зависит от выбранного числа потоков. Смена вступает в силу перед следующим шагом:
+     * пул меняется на потоке симуляции, поэтому шаг никогда не получает уже остановленный пул.
+     * @param parallelism число потоков
+     */
+    public void setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        pendingCommands.add(() -> applyParallelism(parallelism));
+    }
+
+    /**
+     * Меняет число потоков для шага. Прежний пул останавливается, новый создается при первом параллельном шаге.
+     */
+    private void applyParallelism(int newParallelism)
+    {
+        if (newParallelism != parallelism)
+        {
+            parallelism = newParallelism;
+            releaseStepPool();
+        }
+    }
+
+    /**
+     * Возвращает пул для параллельного шага, создавая его при необходимости. Вызывается только на потоке симуляции.
+     */
+    private ForkJoinPool stepPool()
+    {
+        ForkJoinPool pool = stepPool;
+        if (pool == null)
+        {
+            pool = new ForkJoinPool(parallelism);
+            stepPool = pool;
+        }
+        return pool;
+    }
+
+    /**
+     * Останавливает пул параллельного шага. Вызывается на потоке симуляции или когда шаги не выполняются.
+     */
+    private void releaseStepPool()
+    {
+        final ForkJoinPool pool = stepPool;
+        if (pool != null)
+        {
+            stepPool = null;
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Возвращает число потоков для шага симуляции, уже вступившее в силу.
+     * @return число потоков
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Устанавливает наибольшее число роботов в одной части при параллельном шаге.
+     * @param newChunkSize число роботов в части
+     */
+    public void setChunkSize(int newChunkSize)
+    {
+        if (newChunkSize < 1)
+        {
+            throw new IllegalArgumentException("chunkSize must be positive: " + newChunkSize);
+        }
+        this.chunkSize = newChunkSize;
+    }
+
+    /**
+     * Добавляет действие в таймер вспомогательных действий с указанным таймаутом.
+     * Таймер работает на отдельном потоке, поэтому действие не задерживает шаги симуляции.
      * @param task действие, которое нужно выполнить
      * @param timeout время между выполнениями действия в миллисекундах
      */
-    public void addActionToTimer(TimerTask task, long timeout)
+    public synchronized void addActionToTimer(TimerTask task, long timeout)
     {
+        if (timer == null)
+        {
+            timer = new Timer("event generator", true);
+        }
         timer.schedule(task, 0, timeout);
     }
 
     /**
-     * Останавливает таймер.
+     * Останавливает планировщик симуляции и таймер вспомогательных действий и завершает журнал, если он ведется:
+     * иначе журнал остался бы недописанным в буфере и без записи конца. Пул параллельного шага тоже
+     * останавливается; при следующем запуске он создается заново.
      */
-    public void stopTimer()
+    public synchronized void stopTimer()
     {
-        timer.cancel();
+        scheduler.stop();
+        if (timer != null)
+        {
+            timer.cancel();
+            timer = null;
+        }
+        // Планировщик дождался последнего шага, поэтому журнал и пул шага больше никто не использует; шаги сеанса
+        // продолжаются, и журналом и пулом пользуется его поток
+        if (!sessionAttached)
+        {
+            closeJournal();
+            releaseStepPool();
+        }
+    }
+
+    /**
+     * Возвращает планировщик симуляции, по которому можно получить статистику шагов.
+     * @return планировщик симуляции
+     */
+    public SimulationScheduler getScheduler()
+    {
+        return scheduler;
     }
 
     /**
@@ -105,6 +959,15 @@ public class RobotsLogic extends Observable
         return robot;
     }
 
+    /**
+     * Возвращает парк роботов.
+     * @return парк роботов
+     */
+    public RobotFleet getFleet()
+    {
+        return fleet;
+    }
+
     /**
      * Возвращает текущую цель робота.
      * @return цель
@@ -115,76 +978,64 @@ public class RobotsLogic extends Observable
     }
 
     /**
-     * Устанавливает новую цель для робота.
+     * Устанавливает новую цель для робота. Робот получает цель перед следующим шагом симуляции.
      * @param newTarget новая цель
      */
     public void setTarget(Target newTarget)
     {
         this.target = newTarget;
+        submitTarget(target.getPosition().getX(), target.getPosition().getY());
+    }
 
-        if (RobotsMath.angleTo(robot.getPosition(), target.getPosition()) > robot.getDirection())
-        {
-            robot.setAngularVelocity(-ANGULAR_VELOCITY);
-        } else
+    /**
+     * Переносит текущую цель робота в указанную точку без создания новых объектов.
+     * Координаты масштабируются так же, как в {@link Target#Target(double, double)}.
+     * Робот получает цель перед следующим шагом симуляции.
+     * @param x координата x цели
+     * @param y координата y цели
+     */
+    public void setTarget(double x, double y)
+    {
+        target.moveTo(x, y);
+        submitTarget(target.getPosition().getX(), target.getPosition().getY());
+    }
+
+    /**
+     * Запоминает цель робота до следующего шага. Из нескольких целей, заданных между шагами, применяется последняя.
+     */
+    private void submitTarget(double x, double y)
+    {
+        synchronized (inputLock)
         {
-            robot.setAngularVelocity(ANGULAR_VELOCITY);
+            pendingTargetX = x;
+            pendingTargetY = y;
+            targetPending = true;
+            inputPending = true;
         }
     }
 
     /**
-     * Устанавливает границы окна.
+     * Устанавливает границы окна. Значения копируются, переданная точка не сохраняется.
      * @param newWindowBounds новые границы окна
      */
     public void setWindowBounds(Point2D.Double newWindowBounds)
     {
-        this.windowBounds = newWindowBounds;
+        setWindowBounds(newWindowBounds.getX(), newWindowBounds.getY());
     }
 
     /**
-     * Вспомогательный класс для математических расчетов, связанных с движением робота.
+     * Устанавливает границы окна без создания новых объектов. Границы применяются перед следующим шагом симуляции.
+     * @param width ширина окна
+     * @param height высота окна
      */
-    private static class RobotsMath
+    public void setWindowBounds(double width, double height)
     {
-        /**
-         * Вычисляет угол между двумя точками.
-         * @param p0 первая точка
-         * @param p1 вторая точка
-         * @return угол между точками в радианах
-         */
-        public static double angleTo(Point2D.Double p0, Point2D.Double p1)
-        {
-            final double dx = p1.getX() - p0.getX();
-            final double dy = p1.getY() - p0.getY();
-
-            return asNormalizedRadians(Math.atan2(dy, dx));
-        }
-
-        /**
-         * Нормализует угол в радианах в диапазоне от 0 до 2π.
-         * @param angle угол в радианах
-         * @return нормализованный угол
-         */
-        private static double asNormalizedRadians(double angle)
-        {
-            final double TAU = 2 * Math.PI;
-
-            if (angle < 0)
-            {
-                return TAU - ((-angle) % TAU);
-            }
-
-            return angle % TAU;
-        }
-
-        /**
-         * Вычисляет коэффициент скорости на основе положения и верхней границы.
-         * @param t текущая координата
-         * @param upperBoundT верхняя граница координаты
-         * @return коэффициент скорости
-         */
-        private static double speedFactor(double t, double upperBoundT)
+        synchronized (inputLock)
         {
-            return Math.max(1 - 2 * Math.abs((upperBoundT - t) / upperBoundT - 0.5), 0.01);
+            pendingBoundsX = width;
+            pendingBoundsY = height;
+            boundsPending = true;
+            inputPending = true;
         }
     }
 }
\ No newline at end of file
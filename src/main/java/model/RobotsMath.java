@@ -0,0 +1,96 @@
+package model;
+
+import java.awt.geom.Point2D;
+
+/**
+ * Вспомогательный класс для математических расчетов, связанных с движением робота.
+ */
+final class RobotsMath
+{
+    private static final double TAU = 2 * Math.PI;
+
+    private RobotsMath()
+    {
+    }
+
+    /**
+     * Вычисляет угол между двумя точками.
+     * @param p0 первая точка
+     * @param p1 вторая точка
+     * @return угол между точками в радианах
+     */
+    static double angleTo(Point2D.Double p0, Point2D.Double p1)
+    {
+        return angleTo(p0.getX(), p0.getY(), p1.getX(), p1.getY());
+    }
+
+    /**
+     * Вычисляет угол между двумя точками, заданными координатами.
+     * @param x0 координата x первой точки
+     * @param y0 координата y первой точки
+     * @param x1 координата x второй точки
+     * @param y1 координата y второй точки
+     * @return угол между точками в радианах
+     */
+    static double angleTo(double x0, double y0, double x1, double y1)
+    {
+        return angleTo(MathBackend.EXACT, x0, y0, x1, y1);
+    }
+
+    /**
+     * Вычисляет угол между двумя точками с помощью указанного набора функций.
+     * @param math набор тригонометрических функций
+     * @param x0 координата x первой точки
+     * @param y0 координата y первой точки
+     * @param x1 координата x второй точки
+     * @param y1 координата y второй точки
+     * @return угол между точками в радианах
+     */
+    static double angleTo(MathBackend math, double x0, double y0, double x1, double y1)
+    {
+        final double dx = x1 - x0;
+        final double dy = y1 - y0;
+
+        return asNormalizedRadians(math.atan2(dy, dx));
+    }
+
+    /**
+     * Нормализует угол в радианах в диапазоне от 0 до 2π.
+     * Для углов из [-2π, 4π), которые дают atan2 и шаг поворота, остаток вычисляется без деления;
+     * результат побитово совпадает с вычислением через {@code %}.
+     * @param angle угол в радианах
+     * @return нормализованный угол
+     */
+    static double asNormalizedRadians(double angle)
+    {
+        if (angle < 0)
+        {
+            if (angle > -TAU)
+            {
+                return TAU - (-angle);
+            }
+            return TAU - ((-angle) % TAU);
+        }
+
+        if (angle < TAU)
+        {
+            return angle;
+        }
+        if (angle < 2 * TAU)
+        {
+            return angle - TAU;
+        }
+        return angle % TAU;
+    }
+
+    /**
+     * Вычисляет коэффициент скорости на основе положения и верхней границы.
+     * @param t текущая координата
+     * @param upperBoundT верхняя граница координаты
+     * @return коэффициент скорости
+     */
+    static double speedFactor(double t, double upperBoundT)
+    {
+        return Math.max(1 - 2 * Math.abs((upperBoundT - t) / upperBoundT - 0.5), 0.01);
+    }
+}
\ No newline at end of file
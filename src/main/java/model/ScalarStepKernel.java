@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * Ядро шага, которое обрабатывает роботов по одному.
+ */
+final class ScalarStepKernel implements StepKernel
+{
+    @Override
+    public void step(RobotFleet fleet, int from, int to, double deltaTime, double boundsX, double boundsY)
+    {
+        final int[] active = fleet.activeSlots();
+        final boolean[] settled = fleet.settledFlags();
+        for (int k = from; k < to; k++)
+        {
+            settled[k] = fleet.stepRobot(active[k], deltaTime, boundsX, boundsY);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * Подписчик на изменения состояния симуляции.
+ */
+@FunctionalInterface
+public interface SimulationListener
+{
+    /**
+     * Вызывается с последним кадром состояния мира. Кадр закрывается после возврата из метода,
+     * поэтому сохранять ссылку на него нельзя.
+     * @param snapshot кадр состояния мира
+     */
+    void onSimulationChanged(WorldSnapshot snapshot);
+}
@@ -0,0 +1,178 @@
+package model;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Планировщик симуляции с фиксированным шагом времени.
+ * <p>
+ * Шаги выполняются на отдельном потоке, время отсчитывается по {@link System#nanoTime()}.
+ * Если поток отстал от расписания, он догоняет его, выполняя не более {@code maxCatchUpTicks} шагов подряд;
+ * оставшееся отставание отбрасывается и учитывается как пропущенные шаги.
+ * Шаги, длившиеся дольше периода, считаются перегрузками. Учет времени и статистику ведет {@link TickRunner},
+ * общий с сеансами {@link SimulationSessionManager}.
+ */
+public class SimulationScheduler
+{
+    private final String name;
+    private final TickRunner runner;
+
+    private volatile Thread thread;
+
+    /**
+     * Создает планировщик.
+     * @param name имя потока симуляции
+     * @param tick действие, выполняемое на каждом шаге
+     * @param periodNanos длительность шага в наносекундах
+     * @param maxCatchUpTicks наибольшее число шагов, выполняемых подряд для устранения отставания
+     */
+    public SimulationScheduler(String name, Runnable tick, long periodNanos, int maxCatchUpTicks)
+    {
+        this.name = name;
+        this.runner = new TickRunner(tick, "Ошибка шага симуляции", periodNanos, maxCatchUpTicks);
+    }
+
+    /**
+     * Запускает поток симуляции. Повторный вызов у запущенного планировщика ничего не делает.
+     */
+    public synchronized void start()
+    {
+        if (thread != null)
+        {
+            return;
+        }
+        final Thread newThread = new Thread(this::runLoop, name);
+        newThread.setDaemon(true);
+        thread = newThread;
+        newThread.start();
+    }
+
+    /**
+     * Останавливает поток симуляции и ждет, пока текущий шаг будет доведен до конца. При вызове из самого
+     * потока симуляции (из шага) ожидания нет: цикл завершится сразу после этого шага.
+     */
+    public synchronized void stop()
+    {
+        final Thread oldThread = thread;
+        if (oldThread == null)
+        {
+            return;
+        }
+        thread = null;
+        LockSupport.unpark(oldThread);
+        if (oldThread == Thread.currentThread())
+        {
+            return;
+        }
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                oldThread.join();
+                break;
+            } catch (InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Проверяет, запущен ли планировщик.
+     * @return true, если поток симуляции работает
+     */
+    public boolean isRunning()
+    {
+        return thread != null;
+    }
+
+    /**
+     * Основной цикл потока симуляции. Цикл работает, пока его поток остается текущим потоком планировщика.
+     * {@link #stop()} дожидается завершения цикла, поэтому после перезапуска шаги никогда не выполняются
+     * двумя потоками одновременно.
+     */
+    private void runLoop()
+    {
+        final Thread self = Thread.currentThread();
+        final BooleanSupplier current = () -> thread == self;
+        long nextTick = System.nanoTime();
+        while (thread == self)
+        {
+            final long now = System.nanoTime();
+            if (now - nextTick < 0)
+            {
+                LockSupport.parkNanos(nextTick - now);
+                continue;
+            }
+            nextTick = runner.runDue(nextTick, current);
+        }
+    }
+
+    /**
+     * Возвращает длительность шага.
+     * @return длительность шага в наносекундах
+     */
+    public long getPeriodNanos()
+    {
+        return runner.getPeriodNanos();
+    }
+
+    /**
+     * Возвращает число выполненных шагов.
+     * @return число шагов
+     */
+    public long getTickCount()
+    {
+        return runner.getTickCount();
+    }
+
+    /**
+     * Возвращает число шагов, длившихся дольше периода.
+     * @return число перегрузок
+     */
+    public long getOverrunCount()
+    {
+        return runner.getOverrunCount();
+    }
+
+    /**
+     * Возвращает число шагов, отброшенных из-за превышения лимита догоняющих шагов.
+     * @return число пропущенных шагов
+     */
+    public long getSkippedTicks()
+    {
+        return runner.getSkippedTicks();
+    }
+
+    /**
+     * Возвращает длительность последнего шага.
+     * @return длительность в наносекундах
+     */
+    public long getLastTickNanos()
+    {
+        return runner.getLastTickNanos();
+    }
+
+    /**
+     * Возвращает наибольшую длительность шага.
+     * @return длительность в наносекундах
+     */
+    public long getMaxTickNanos()
+    {
+        return runner.getMaxTickNanos();
+    }
+
+    /**
+     * Возвращает наибольшее отставание от расписания перед началом шага.
+     * @return отставание в наносекундах
+     */
+    public long getMaxLagNanos()
+    {
+        return runner.getMaxLagNanos();
+    }
+}
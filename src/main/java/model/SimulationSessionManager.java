@@ -0,0 +1,360 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Менеджер множества независимых сеансов симуляции в одной JVM.
+ * <p>
+ * Сеансы не создают собственных потоков: шаги всех сеансов выполняет общий пул из небольшого числа потоков.
+ * Каждый сеанс — это задача, которая выполняет наступившие по расписанию шаги своей {@link RobotsLogic}
+ * и снова ставит себя в пул к сроку следующего шага. Учет времени тот же, что у {@link SimulationScheduler}
+ * ({@link TickRunner}): отставание догоняется не более чем {@link RobotsLogic#MAX_CATCH_UP_TICKS} шагами подряд,
+ * остаток отбрасывается.
+ * Шаги одного сеанса никогда не выполняются одновременно, поэтому логика сеанса видит тот же поток
+ * симуляции, что и при собственном планировщике.
+ * <p>
+ * Логика закрепляется за сеансом до его остановки: ее нельзя передать второму сеансу или запустить своим
+ * планировщиком ({@link RobotsLogic#startTimer()}).
+ */
+public class SimulationSessionManager implements AutoCloseable
+{
+    /**
+     * Состояние сеанса.
+     */
+    public enum State
+    {
+        PAUSED, RUNNING, STOPPED
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Создает менеджер с пулом по числу процессоров.
+     */
+    public SimulationSessionManager()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Создает менеджер.
+     * @param threads число потоков общего пула
+     */
+    public SimulationSessionManager(int threads)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, runnable ->
+        {
+            final Thread thread = new Thread(runnable, "simulation sessions " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Создает приостановленный сеанс с периодом шага логики.
+     * @param name уникальное имя сеанса
+     * @param logic логика роботов сеанса
+     * @return сеанс
+     */
+    public Session create(String name, RobotsLogic logic)
+    {
+        return create(name, logic, logic.getScheduler().getPeriodNanos());
+    }
+
+    /**
+     * Создает приостановленный сеанс.
+     * @param name уникальное имя сеанса
+     * @param logic логика роботов сеанса
+     * @param periodNanos длительность шага в наносекундах
+     * @return сеанс
+     * @throws IllegalStateException если логику уже выполняет собственный планировщик или другой сеанс
+     */
+    public Session create(String name, RobotsLogic logic, long periodNanos)
+    {
+        if (executor.isShutdown())
+        {
+            throw new IllegalStateException("Session manager is closed");
+        }
+        final Session session = new Session(name, logic, periodNanos);
+        logic.attachSession();
+        if (sessions.putIfAbsent(name, session) != null)
+        {
+            logic.detachSession();
+            throw new IllegalArgumentException("Session already exists: " + name);
+        }
+        return session;
+    }
+
+    /**
+     * Возвращает сеанс по имени.
+     * @param name имя сеанса
+     * @return сеанс или null, если сеанса нет или он остановлен
+     */
+    public Session get(String name)
+    {
+        return sessions.get(name);
+    }
+
+    /**
+     * Возвращает все неостановленные сеансы.
+     * @return список сеансов
+     */
+    public List<Session> getSessions()
+    {
+        return new ArrayList<>(sessions.values());
+    }
+
+    /**
+     * Возвращает число запущенных сеансов.
+     * @return число сеансов в состоянии {@link State#RUNNING}
+     */
+    public int getRunningCount()
+    {
+        int running = 0;
+        for (Session session : sessions.values())
+        {
+            if (session.getState() == State.RUNNING)
+            {
+                running++;
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Возвращает суммарное число шагов всех неостановленных сеансов.
+     * @return число шагов
+     */
+    public long getTotalTickCount()
+    {
+        long total = 0;
+        for (Session session : sessions.values())
+        {
+            total += session.getTickCount();
+        }
+        return total;
+    }
+
+    /**
+     * Останавливает все сеансы и завершает пул потоков.
+     */
+    @Override
+    public void close()
+    {
+        for (Session session : getSessions())
+        {
+            session.stop();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Сеанс симуляции: одна {@link RobotsLogic} со своим расписанием шагов и статистикой.
+     */
+    public final class Session
+    {
+        private final String name;
+        private final RobotsLogic logic;
+        private final TickRunner runner;
+        private final Object tickLock = new Object();
+
+        private volatile State state = State.PAUSED;
+        private volatile int epoch;
+        private ScheduledFuture<?> future;
+
+        private Session(String name, RobotsLogic logic, long periodNanos)
+        {
+            this.name = name;
+            this.logic = logic;
+            this.runner = new TickRunner(logic::tick, "Ошибка шага сеанса " + name, periodNanos,
+                    RobotsLogic.MAX_CATCH_UP_TICKS);
+        }
+
+        /**
+         * Запускает или возобновляет сеанс. Время паузы не догоняется.
+         * Повторный вызов у запущенного сеанса ничего не делает.
+         */
+        public synchronized void start()
+        {
+            if (state == State.STOPPED)
+            {
+                throw new IllegalStateException("Session is stopped: " + name);
+            }
+            if (state == State.RUNNING)
+            {
+                return;
+            }
+            state = State.RUNNING;
+            final int current = ++epoch;
+            final long firstTick = System.nanoTime();
+            future = executor.schedule(() -> run(current, firstTick), 0, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Приостанавливает сеанс. Выполняемый шаг доводится до конца.
+         */
+        public synchronized void pause()
+        {
+            if (state == State.RUNNING)
+            {
+                state = State.PAUSED;
+                cancel();
+            }
+        }
+
+        /**
+         * Останавливает сеанс, удаляет его из менеджера и освобождает логику. Выполняемый шаг доводится до конца,
+         * после этого логику можно передать другому сеансу. Остановленный сеанс нельзя запустить снова.
+         */
+        public synchronized void stop()
+        {
+            if (state != State.STOPPED)
+            {
+                state = State.STOPPED;
+                cancel();
+                // Задача, уже начавшая шаги, увидит смену номера запуска после текущего шага
+                synchronized (tickLock)
+                {
+                    logic.detachSession();
+                }
+                sessions.remove(name, this);
+            }
+        }
+
+        private void cancel()
+        {
+            epoch++;
+            if (future != null)
+            {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        /**
+         * Выполняет наступившие шаги и ставит сеанс в пул к сроку следующего шага.
+         * Задача прежнего запуска, доработавшая после паузы, не переназначает себя.
+         * @param current номер запуска, к которому относится задача
+         * @param scheduled срок очередного шага по {@link System#nanoTime()}
+         */
+        private void run(int current, long scheduled)
+        {
+            final long following;
+            synchronized (tickLock)
+            {
+                following = runner.runDue(scheduled, () -> epoch == current);
+            }
+            synchronized (this)
+            {
+                if (epoch == current && !executor.isShutdown())
+                {
+                    future = executor.schedule(() -> run(current, following), following - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        /**
+         * Возвращает имя сеанса.
+         * @return имя
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Возвращает логику роботов сеанса.
+         * @return логика роботов
+         */
+        public RobotsLogic getLogic()
+        {
+            return logic;
+        }
+
+        /**
+         * Возвращает состояние сеанса.
+         * @return состояние
+         */
+        public State getState()
+        {
+            return state;
+        }
+
+        /**
+         * Возвращает длительность шага.
+         * @return длительность шага в наносекундах
+         */
+        public long getPeriodNanos()
+        {
+            return runner.getPeriodNanos();
+        }
+
+        /**
+         * Возвращает число выполненных шагов.
+         * @return число шагов
+         */
+        public long getTickCount()
+        {
+            return runner.getTickCount();
+        }
+
+        /**
+         * Возвращает число шагов, длившихся дольше периода.
+         * @return число перегрузок
+         */
+        public long getOverrunCount()
+        {
+            return runner.getOverrunCount();
+        }
+
+        /**
+         * Возвращает число шагов, отброшенных из-за превышения лимита догоняющих шагов.
+         * @return число пропущенных шагов
+         */
+        public long getSkippedTicks()
+        {
+            return runner.getSkippedTicks();
+        }
+
+        /**
+         * Возвращает длительность последнего шага.
+         * @return длительность в наносекундах
+         */
+        public long getLastTickNanos()
+        {
+            return runner.getLastTickNanos();
+        }
+
+        /**
+         * Возвращает наибольшую длительность шага.
+         * @return длительность в наносекундах
+         */
+        public long getMaxTickNanos()
+        {
+            return runner.getMaxTickNanos();
+        }
+
+        /**
+         * Возвращает наибольшее отставание от расписания перед началом шага.
+         * @return отставание в наносекундах
+         */
+        public long getMaxLagNanos()
+        {
+            return runner.getMaxLagNanos();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Равномерная сетка для пространственных запросов к множеству точек.
+ * <p>
+ * Каждая точка задается целым идентификатором (например, номером слота парка роботов) и хранится
+ * в одной ячейке сетки. Ячейки связывают свои точки двусвязными списками на примитивных массивах,
+ * поэтому обновление позиции без смены ячейки стоит O(1), а смена ячейки сводится к перестановке ссылок.
+ * Точки за пределами области сетки попадают в крайние ячейки, так что запросы остаются корректными
+ * для любых координат. Класс не потокобезопасен.
+ */
+public class SpatialGrid
+{
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellHead;
+
+    private double[] x;
+    private double[] y;
+    private int[] cellOf;
+    private int[] next;
+    private int[] prev;
+    private int count;
+
+    /**
+     * Создает сетку, покрывающую область от (0, 0) до (width, height).
+     * @param width ширина области
+     * @param height высота области
+     * @param cellSize размер ячейки
+     */
+    public SpatialGrid(double width, double height, double cellSize)
+    {
+        if (!(cellSize > 0))
+        {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellHead = new int[columns * rows];
+        Arrays.fill(cellHead, NONE);
+        x = new double[DEFAULT_CAPACITY];
+        y = new double[DEFAULT_CAPACITY];
+        cellOf = new int[DEFAULT_CAPACITY];
+        next = new int[DEFAULT_CAPACITY];
+        prev = new int[DEFAULT_CAPACITY];
+        Arrays.fill(cellOf, NONE);
+    }
+
+    /**
+     * Добавляет точку или обновляет позицию уже добавленной. Если точка осталась в той же ячейке,
+     * обновляются только координаты.
+     * @param id идентификатор точки
+     * @param newX координата x
+     * @param newY координата y
+     */
+    public void update(int id, double newX, double newY)
+    {
+        if (id < 0)
+        {
+            throw new IllegalArgumentException("id must not be negative: " + id);
+        }
+        if (id >= cellOf.length)
+        {
+            grow(id + 1);
+        }
+        x[id] = newX;
+        y[id] = newY;
+
+        final int cell = cellIndex(column(newX), row(newY));
+        final int oldCell = cellOf[id];
+        if (cell == oldCell)
+        {
+            return;
+        }
+        if (oldCell == NONE)
+        {
+            count++;
+        } else
+        {
+            unlink(id, oldCell);
+        }
+        link(id, cell);
+    }
+
+    /**
+     * Удаляет точку из сетки. Отсутствующая точка игнорируется.
+     * @param id идентификатор точки
+     */
+    public void remove(int id)
+    {
+        if (id < 0 || id >= cellOf.length || cellOf[id] == NONE)
+        {
+            return;
+        }
+        unlink(id, cellOf[id]);
+        cellOf[id] = NONE;
+        count--;
+    }
+
+    /**
+     * Проверяет, есть ли точка в сетке.
+     * @param id идентификатор точки
+     * @return true, если точка добавлена
+     */
+    public boolean contains(int id)
+    {
+        return id >= 0 && id < cellOf.length && cellOf[id] != NONE;
+    }
+
+    /**
+     * Возвращает число точек в сетке.
+     * @return число точек
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Передает в {@code action} идентификаторы всех точек, лежащих строго ближе {@code radius} к точке (qx, qy).
+     * Просматриваются только ячейки, пересекающие квадрат, описанный вокруг круга запроса.
+     * @param qx координата x центра
+     * @param qy координата y центра
+     * @param radius радиус
+     * @param action получатель идентификаторов
+     * @return число найденных точек
+     */
+    public int forEachWithin(double qx, double qy, double radius, IntConsumer action)
+    {
+        final int minColumn = column(qx - radius);
+        final int maxColumn = column(qx + radius);
+        final int minRow = row(qy - radius);
+        final int maxRow = row(qy + radius);
+        final double radiusSquared = radius * radius;
+        int found = 0;
+        for (int r = minRow; r <= maxRow; r++)
+        {
+            for (int c = minColumn; c <= maxColumn; c++)
+            {
+                for (int id = cellHead[cellIndex(c, r)]; id != NONE; id = next[id])
+                {
+                    if (distanceSquared(id, qx, qy) < radiusSquared)
+                    {
+                        action.accept(id);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Проверяет, есть ли хотя бы одна точка строго ближе {@code radius} к точке (qx, qy).
+     * @param qx координата x центра
+     * @param qy координата y центра
+     * @param radius радиус
+     * @return true, если такая точка есть
+     */
+    public boolean anyWithin(double qx, double qy, double radius)
+    {
+        final int minColumn = column(qx - radius);
+        final int maxColumn = column(qx + radius);
+        final int minRow = row(qy - radius);
+        final int maxRow = row(qy + radius);
+        final double radiusSquared = radius * radius;
+        for (int r = minRow; r <= maxRow; r++)
+        {
+            for (int c = minColumn; c <= maxColumn; c++)
+            {
+                for (int id = cellHead[cellIndex(c, r)]; id != NONE; id = next[id])
+                {
+                    if (distanceSquared(id, qx, qy) < radiusSquared)
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Находит ближайшую к (qx, qy) точку. Ячейки просматриваются кольцами вокруг ячейки запроса,
+     * пока следующее кольцо заведомо не может содержать точку ближе уже найденной.
+     * @param qx координата x
+     * @param qy координата y
+     * @return идентификатор ближайшей точки или -1, если сетка пуста
+     */
+    public int nearest(double qx, double qy)
+    {
+        if (count == 0)
+        {
+            return NONE;
+        }
+        final int centerColumn = column(qx);
+        final int centerRow = row(qy);
+        final int maxRing = Math.max(Math.max(centerColumn, columns - 1 - centerColumn),
+                Math.max(centerRow, rows - 1 - centerRow));
+
+        int best = NONE;
+        double bestDistanceSquared = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= maxRing; ring++)
+        {
+            if (best != NONE)
+            {
+                final double reach = ringReach(qx, qy, centerColumn, centerRow, ring);
+                if (reach * reach >= bestDistanceSquared)
+                {
+                    break;
+                }
+            }
+            for (int r = centerRow - ring; r <= centerRow + ring; r++)
+            {
+                if (r < 0 || r >= rows)
+                {
+                    continue;
+                }
+                final boolean edgeRow = r == centerRow - ring || r == centerRow + ring;
+                final int step = edgeRow ? 1 : 2 * ring;
+                for (int c = centerColumn - ring; c <= centerColumn + ring; c += Math.max(step, 1))
+                {
+                    if (c < 0 || c >= columns)
+                    {
+                        continue;
+                    }
+                    for (int id = cellHead[cellIndex(c, r)]; id != NONE; id = next[id])
+                    {
+                        final double d = distanceSquared(id, qx, qy);
+                        if (d < bestDistanceSquared)
+                        {
+                            bestDistanceSquared = d;
+                            best = id;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Возвращает координату x точки.
+     * @param id идентификатор точки
+     * @return координата x
+     */
+    public double getX(int id)
+    {
+        return x[id];
+    }
+
+    /**
+     * Возвращает координату y точки.
+     * @param id идентификатор точки
+     * @return координата y
+     */
+    public double getY(int id)
+    {
+        return y[id];
+    }
+
+    /**
+     * Оценивает снизу расстояние от точки запроса до любой ячейки кольца с указанным номером.
+     * Для крайних ячеек, в которые попадают точки за пределами области, оценка равна нулю.
+     */
+    private double ringReach(double qx, double qy, int centerColumn, int centerRow, int ring)
+    {
+        if (centerColumn - ring <= 0 || centerColumn + ring >= columns - 1
+                || centerRow - ring <= 0 || centerRow + ring >= rows - 1)
+        {
+            return 0;
+        }
+        final double left = qx - (centerColumn - ring + 1) * cellSize;
+        final double right = (centerColumn + ring) * cellSize - qx;
+        final double top = qy - (centerRow - ring + 1) * cellSize;
+        final double bottom = (centerRow + ring) * cellSize - qy;
+        return Math.max(0, Math.min(Math.min(left, right), Math.min(top, bottom)));
+    }
+
+    private double distanceSquared(int id, double qx, double qy)
+    {
+        final double dx = x[id] - qx;
+        final double dy = y[id] - qy;
+        return dx * dx + dy * dy;
+    }
+
+    private int column(double value)
+    {
+        final int c = (int) Math.floor(value / cellSize);
+        return c < 0 ? 0 : Math.min(c, columns - 1);
+    }
+
+    private int row(double value)
+    {
+        final int r = (int) Math.floor(value / cellSize);
+        return r < 0 ? 0 : Math.min(r, rows - 1);
+    }
+
+    private int cellIndex(int c, int r)
+    {
+        return r * columns + c;
+    }
+
+    private void link(int id, int cell)
+    {
+        final int head = cellHead[cell];
+        next[id] = head;
+        prev[id] = NONE;
+        if (head != NONE)
+        {
+            prev[head] = id;
+        }
+        cellHead[cell] = id;
+        cellOf[id] = cell;
+    }
+
+    private void unlink(int id, int cell)
+    {
+        final int before = prev[id];
+        final int after = next[id];
+        if (before == NONE)
+        {
+            cellHead[cell] = after;
+        } else
+        {
+            next[before] = after;
+        }
+        if (after != NONE)
+        {
+            prev[after] = before;
+        }
+    }
+
+    private void grow(int minCapacity)
+    {
+        final int oldCapacity = cellOf.length;
+        final int newCapacity = Math.max(minCapacity, oldCapacity * 2);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        prev = Arrays.copyOf(prev, newCapacity);
+        cellOf = Arrays.copyOf(cellOf, newCapacity);
+        Arrays.fill(cellOf, oldCapacity, newCapacity, NONE);
+    }
+}
@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * Ядро шага симуляции: двигает роботов из части активного множества парка.
+ * <p>
+ * {@link #SCALAR} обрабатывает роботов по одному методом {@link RobotFleet#stepRobot(int, double, double, double)}
+ * и используется по умолчанию. {@link #VECTOR} обрабатывает сразу столько роботов, сколько чисел double
+ * помещается в векторный регистр процессора, с помощью {@code jdk.incubator.vector}. Векторное ядро собирается
+ * только в профиле Maven {@code vector} и работает, если JVM запущена с {@code --add-modules jdk.incubator.vector};
+ * иначе {@link #VECTOR} совпадает с {@link #SCALAR}.
+ */
+public interface StepKernel
+{
+    /**
+     * Обычный цикл по роботам.
+     */
+    StepKernel SCALAR = new ScalarStepKernel();
+
+    /**
+     * Векторное ядро или {@link #SCALAR}, если оно недоступно.
+     */
+    StepKernel VECTOR = loadVector();
+
+    /**
+     * Выполняет шаг для активных роботов с позициями {@code [from, to)} в активном множестве парка
+     * и отмечает роботов, оставшихся у цели. Вызывается парком; части можно обрабатывать параллельно.
+     * @param fleet парк роботов
+     * @param from первая позиция
+     * @param to позиция, следующая за последней
+     * @param deltaTime шаг времени
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     */
+    void step(RobotFleet fleet, int from, int to, double deltaTime, double boundsX, double boundsY);
+
+    /**
+     * Проверяет, что ядро обрабатывает роботов векторными командами.
+     * @return true для векторного ядра
+     */
+    default boolean isVectorized()
+    {
+        return false;
+    }
+
+    /**
+     * Загружает векторное ядро, если его класс собран и модуль {@code jdk.incubator.vector} доступен.
+     */
+    private static StepKernel loadVector()
+    {
+        try
+        {
+            return (StepKernel) Class.forName("model.VectorStepKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e)
+        {
+            return SCALAR;
+        }
+    }
+}
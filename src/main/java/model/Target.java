@@ -7,6 +7,8 @@ import java.awt.geom.Point2D;
  */
 public class Target
 {
+    private static final double SCALE_FACTOR = 2f;
+
     private final Point2D.Double position = new Point2D.Double();
 
     /**
@@ -16,8 +18,7 @@ public class Target
      */
     public Target(double x, double y)
     {
-        double scaleFactor = 2f;
-        position.setLocation(x * scaleFactor, y * scaleFactor);
+        moveTo(x, y);
     }
 
     /**
@@ -25,6 +26,17 @@ public class Target
      */
     public Target() {}
 
+    /**
+     * Переносит цель в указанную точку без создания новых объектов.
+     * Координаты масштабируются так же, как в конструкторе {@link #Target(double, double)}.
+     * @param x координата x цели
+     * @param y координата y цели
+     */
+    public void moveTo(double x, double y)
+    {
+        position.setLocation(x * SCALE_FACTOR, y * SCALE_FACTOR);
+    }
+
     /**
      * Возвращает позицию цели.
      * @return позиция цели
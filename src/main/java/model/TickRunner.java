@@ -0,0 +1,151 @@
+package model;
+
+import java.util.function.BooleanSupplier;
+
+import log.LogLevel;
+import log.Logger;
+
+/**
+ * Выполнение шагов по расписанию с фиксированным шагом времени и статистика шагов.
+ * <p>
+ * Общая часть {@link SimulationScheduler} и сеансов {@link SimulationSessionManager}: если шаги отстали
+ * от расписания, отставание догоняется не более чем {@code maxCatchUpTicks} шагами подряд; остаток отбрасывается
+ * и учитывается как пропущенные шаги. Шаги, длившиеся дольше периода, считаются перегрузками.
+ * Шаги одного экземпляра должны выполняться по очереди, а не одновременно.
+ */
+final class TickRunner
+{
+    private final Runnable tick;
+    private final String errorMessage;
+    private final long periodNanos;
+    private final int maxCatchUpTicks;
+
+    private volatile long tickCount;
+    private volatile long overrunCount;
+    private volatile long skippedTicks;
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long maxLagNanos;
+
+    /**
+     * @param tick действие, выполняемое на каждом шаге
+     * @param errorMessage начало сообщения в логе об ошибке шага
+     * @param periodNanos длительность шага в наносекундах
+     * @param maxCatchUpTicks наибольшее число шагов, выполняемых подряд для устранения отставания
+     */
+    TickRunner(Runnable tick, String errorMessage, long periodNanos, int maxCatchUpTicks)
+    {
+        if (periodNanos <= 0)
+        {
+            throw new IllegalArgumentException("periodNanos must be positive: " + periodNanos);
+        }
+        if (maxCatchUpTicks < 1)
+        {
+            throw new IllegalArgumentException("maxCatchUpTicks must be positive: " + maxCatchUpTicks);
+        }
+        this.tick = tick;
+        this.errorMessage = errorMessage;
+        this.periodNanos = periodNanos;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    /**
+     * Выполняет шаги, срок которых наступил, начиная с {@code nextTick}.
+     * @param nextTick срок очередного шага по {@link System#nanoTime()}
+     * @param running проверяется перед каждым шагом; false прекращает выполнение шагов
+     * @return срок следующего шага
+     */
+    long runDue(long nextTick, BooleanSupplier running)
+    {
+        long now = System.nanoTime();
+        final long lag = now - nextTick;
+        if (lag > maxLagNanos)
+        {
+            maxLagNanos = lag;
+        }
+
+        int executed = 0;
+        while (running.getAsBoolean() && now - nextTick >= 0 && executed < maxCatchUpTicks)
+        {
+            runTick();
+            nextTick += periodNanos;
+            executed++;
+            now = System.nanoTime();
+        }
+
+        if (now - nextTick >= 0)
+        {
+            final long behind = (now - nextTick) / periodNanos + 1;
+            skippedTicks += behind;
+            nextTick += behind * periodNanos;
+            // Проверка уровня до вызова: иначе число упаковывается в Long на каждом отставании
+            if (Logger.isEnabled(LogLevel.Debug))
+            {
+                Logger.debug("Симуляция отстает от расписания, пропущено шагов: {}", behind);
+            }
+        }
+        return nextTick;
+    }
+
+    /**
+     * Выполняет один шаг и обновляет статистику.
+     */
+    private void runTick()
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            tick.run();
+        } catch (RuntimeException e)
+        {
+            Logger.error(errorMessage + ": " + e);
+        }
+        final long duration = System.nanoTime() - start;
+
+        lastTickNanos = duration;
+        if (duration > maxTickNanos)
+        {
+            maxTickNanos = duration;
+        }
+        if (duration > periodNanos)
+        {
+            overrunCount++;
+        }
+        tickCount++;
+    }
+
+    long getPeriodNanos()
+    {
+        return periodNanos;
+    }
+
+    long getTickCount()
+    {
+        return tickCount;
+    }
+
+    long getOverrunCount()
+    {
+        return overrunCount;
+    }
+
+    long getSkippedTicks()
+    {
+        return skippedTicks;
+    }
+
+    long getLastTickNanos()
+    {
+        return lastTickNanos;
+    }
+
+    long getMaxTickNanos()
+    {
+        return maxTickNanos;
+    }
+
+    long getMaxLagNanos()
+    {
+        return maxLagNanos;
+    }
+}
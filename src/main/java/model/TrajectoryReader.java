@@ -0,0 +1,193 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение траекторий, записанных {@link TrajectoryRecorder}, с произвольным доступом к любому шагу.
+ * Все сегменты отображаются в память только для чтения при открытии. Записанными считаются шаги до первого
+ * неполного сегмента; заранее созданный, но так и не начатый сегмент (например, оставшийся после аварийного
+ * завершения) считается концом данных.
+ */
+public class TrajectoryReader
+{
+    private final Path directory;
+    private final int robotCount;
+    private final int ticksPerSegment;
+    private final long firstTick;
+    private final long tickCount;
+    private final List<DoubleBuffer> segments = new ArrayList<>();
+
+    /**
+     * Открывает каталог с сегментами траекторий.
+     * @param directory каталог, в который писал {@link TrajectoryRecorder}
+     * @throws IOException если сегменты отсутствуют или повреждены
+     */
+    public TrajectoryReader(Path directory) throws IOException
+    {
+        this.directory = directory;
+        final MappedByteBuffer first = header(0);
+        if (first == null)
+        {
+            throw new IOException("No trajectory segments in " + directory);
+        }
+        this.robotCount = first.getInt(TrajectoryRecorder.ROBOTS_OFFSET);
+        this.ticksPerSegment = first.getInt(TrajectoryRecorder.CAPACITY_OFFSET);
+        this.firstTick = first.getLong(TrajectoryRecorder.FIRST_TICK_OFFSET);
+
+        long total = 0;
+        for (int index = 0; ; index++)
+        {
+            final MappedByteBuffer segment = index == 0 ? first : header(index);
+            if (segment == null)
+            {
+                break;
+            }
+            final int written = segment.getInt(TrajectoryRecorder.WRITTEN_OFFSET);
+            segments.add(segment.slice(TrajectoryRecorder.HEADER_SIZE, segment.capacity() - TrajectoryRecorder.HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer());
+            total += written;
+            if (written < ticksPerSegment)
+            {
+                break;
+            }
+        }
+        this.tickCount = total;
+    }
+
+    /**
+     * Отображает сегмент и проверяет его заголовок.
+     * @return сегмент или null, если файла нет или сегмент еще не начат
+     */
+    private MappedByteBuffer header(int index) throws IOException
+    {
+        final Path file = directory.resolve(String.format(TrajectoryRecorder.SEGMENT_FORMAT, index));
+        if (!Files.exists(file))
+        {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            if (segment.capacity() < TrajectoryRecorder.HEADER_SIZE || segment.getInt(0) == 0)
+            {
+                // Сегмент создан заранее, но запись в него не начиналась
+                return null;
+            }
+            if (segment.getInt(0) != TrajectoryRecorder.MAGIC || segment.getInt(4) != TrajectoryRecorder.VERSION)
+            {
+                throw new IOException("Not a trajectory segment: " + file);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Возвращает число роботов в записи.
+     * @return число роботов
+     */
+    public int getRobotCount()
+    {
+        return robotCount;
+    }
+
+    /**
+     * Возвращает номер первого записанного шага.
+     * @return номер шага
+     */
+    public long getFirstTick()
+    {
+        return firstTick;
+    }
+
+    /**
+     * Возвращает число записанных шагов.
+     * @return число шагов
+     */
+    public long getTickCount()
+    {
+        return tickCount;
+    }
+
+    /**
+     * Копирует состояние всех роботов на указанном шаге.
+     * @param tick номер шага
+     * @param x массив для координат x
+     * @param y массив для координат y
+     * @param direction массив для направлений
+     */
+    public void read(long tick, double[] x, double[] y, double[] direction)
+    {
+        final DoubleBuffer segment = segmentOf(tick);
+        final int base = blockBase(tick);
+        segment.get(base, x, 0, robotCount);
+        segment.get(base + robotCount, y, 0, robotCount);
+        segment.get(base + 2 * robotCount, direction, 0, robotCount);
+    }
+
+    /**
+     * Возвращает координату x робота на указанном шаге.
+     * @param tick номер шага
+     * @param robot номер слота
+     * @return координата x
+     */
+    public double getX(long tick, int robot)
+    {
+        return segmentOf(tick).get(blockBase(tick) + checkRobot(robot));
+    }
+
+    /**
+     * Возвращает координату y робота на указанном шаге.
+     * @param tick номер шага
+     * @param robot номер слота
+     * @return координата y
+     */
+    public double getY(long tick, int robot)
+    {
+        return segmentOf(tick).get(blockBase(tick) + robotCount + checkRobot(robot));
+    }
+
+    /**
+     * Возвращает направление робота на указанном шаге.
+     * @param tick номер шага
+     * @param robot номер слота
+     * @return направление в радианах
+     */
+    public double getDirection(long tick, int robot)
+    {
+        return segmentOf(tick).get(blockBase(tick) + 2 * robotCount + checkRobot(robot));
+    }
+
+    private DoubleBuffer segmentOf(long tick)
+    {
+        final long offset = tick - firstTick;
+        if (offset < 0 || offset >= tickCount)
+        {
+            throw new IndexOutOfBoundsException("Tick " + tick + " is not recorded");
+        }
+        return segments.get((int) (offset / ticksPerSegment));
+    }
+
+    private int blockBase(long tick)
+    {
+        return (int) ((tick - firstTick) % ticksPerSegment) * 3 * robotCount;
+    }
+
+    private int checkRobot(int robot)
+    {
+        if (robot < 0 || robot >= robotCount)
+        {
+            throw new IndexOutOfBoundsException("Robot " + robot + " is not recorded");
+        }
+        return robot;
+    }
+}
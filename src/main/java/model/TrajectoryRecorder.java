@@ -0,0 +1,179 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Запись траекторий роботов в отображаемые в память файлы-сегменты.
+ * <p>
+ * Каждый шаг записывается блоком фиксированной ширины из трех столбцов {@code x}, {@code y} и {@code direction}
+ * по {@code robotCount} чисел double. Сегмент хранит {@code ticksPerSegment} последовательных шагов и начинается
+ * с заголовка ({@link #HEADER_SIZE} байт): сигнатура, версия, число роботов, емкость сегмента, номер первого шага
+ * и число записанных шагов. Запись блока — это копирование массивов парка в отображенную память без создания
+ * объектов и без системных вызовов; следующий сегмент заранее создается и отображается фоновым потоком.
+ * Файлы читает {@link TrajectoryReader}.
+ */
+public class TrajectoryRecorder implements AutoCloseable
+{
+    static final int MAGIC = 0x54524A31;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int ROBOTS_OFFSET = 8;
+    static final int CAPACITY_OFFSET = 12;
+    static final int FIRST_TICK_OFFSET = 16;
+    static final int WRITTEN_OFFSET = 24;
+    static final String SEGMENT_FORMAT = "trajectory-%06d.seg";
+
+    private final Path directory;
+    private final int robotCount;
+    private final int ticksPerSegment;
+    private final long blockBytes;
+    private final ExecutorService mapper;
+
+    private long firstTick = -1;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment;
+    private DoubleBuffer doubles;
+    private int written;
+    private Future<MappedByteBuffer> nextSegment;
+
+    /**
+     * Создает запись траекторий в указанный каталог.
+     * @param directory каталог для сегментов; создается при необходимости
+     * @param robotCount число записываемых роботов (первые слоты парка)
+     * @param ticksPerSegment число шагов в одном сегменте
+     * @throws IOException если каталог нельзя создать
+     */
+    public TrajectoryRecorder(Path directory, int robotCount, int ticksPerSegment) throws IOException
+    {
+        if (robotCount < 1 || ticksPerSegment < 1)
+        {
+            throw new IllegalArgumentException("robotCount and ticksPerSegment must be positive");
+        }
+        this.blockBytes = 3L * robotCount * Double.BYTES;
+        if (HEADER_SIZE + blockBytes * ticksPerSegment > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Segment must not exceed 2 GB: reduce ticksPerSegment");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.robotCount = robotCount;
+        this.ticksPerSegment = ticksPerSegment;
+        this.mapper = Executors.newSingleThreadExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "trajectory mapper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Записывает состояние роботов после шага. Шаги должны идти подряд, начиная с первого записанного.
+     * @param tick номер шага
+     * @param fleet парк роботов
+     * @throws IOException если не удалось отобразить очередной сегмент
+     */
+    public void record(long tick, RobotFleet fleet) throws IOException
+    {
+        if (firstTick < 0)
+        {
+            firstTick = tick;
+        } else if (tick != firstTick + (long) segmentIndex * ticksPerSegment + written)
+        {
+            throw new IllegalArgumentException("Ticks must be consecutive: " + tick);
+        }
+        if (segment == null || written == ticksPerSegment)
+        {
+            switchSegment();
+        }
+        final int base = (int) (written * blockBytes / Double.BYTES);
+        fleet.copyColumns(doubles, base, robotCount);
+        written++;
+        segment.putInt(WRITTEN_OFFSET, written);
+    }
+
+    /**
+     * Переходит к следующему сегменту и заказывает отображение сегмента после него.
+     */
+    private void switchSegment() throws IOException
+    {
+        segmentIndex++;
+        segment = nextSegment == null ? map(segmentIndex) : await(nextSegment);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putInt(ROBOTS_OFFSET, robotCount);
+        segment.putInt(CAPACITY_OFFSET, ticksPerSegment);
+        segment.putLong(FIRST_TICK_OFFSET, firstTick + (long) segmentIndex * ticksPerSegment);
+        segment.putInt(WRITTEN_OFFSET, 0);
+        doubles = segment.slice(HEADER_SIZE, segment.capacity() - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        written = 0;
+        final int following = segmentIndex + 1;
+        nextSegment = mapper.submit(() -> map(following));
+    }
+
+    /**
+     * Создает файл сегмента нужного размера и отображает его в память.
+     */
+    private MappedByteBuffer map(int index) throws IOException
+    {
+        final Path file = directory.resolve(String.format(SEGMENT_FORMAT, index));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + blockBytes * ticksPerSegment);
+        }
+    }
+
+    private static MappedByteBuffer await(Future<MappedByteBuffer> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while mapping a trajectory segment", e);
+        } catch (ExecutionException e)
+        {
+            throw new IOException("Cannot map a trajectory segment", e.getCause());
+        }
+    }
+
+    /**
+     * Возвращает число записанных шагов.
+     * @return число шагов
+     */
+    public long getTickCount()
+    {
+        return segmentIndex < 0 ? 0 : (long) segmentIndex * ticksPerSegment + written;
+    }
+
+    /**
+     * Сбрасывает записанные данные на диск и останавливает фоновый поток.
+     * Заранее созданный пустой сегмент удаляется.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (segment != null)
+        {
+            segment.force();
+        }
+        mapper.shutdown();
+        if (nextSegment != null)
+        {
+            await(nextSegment);
+            Files.deleteIfExists(directory.resolve(String.format(SEGMENT_FORMAT, segmentIndex + 1)));
+        }
+    }
+}
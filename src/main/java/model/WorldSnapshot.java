@@ -0,0 +1,217 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Неизменяемый для читателей кадр состояния мира после одного шага симуляции.
+ * <p>
+ * Кадр получают через {@link WorldSnapshotBuffer#acquire()} и обязательно закрывают после чтения,
+ * лучше всего в блоке try-with-resources. Пока кадр открыт хотя бы одним читателем, симуляция его не перезаписывает,
+ * поэтому все значения внутри кадра согласованы между собой.
+ */
+public final class WorldSnapshot implements AutoCloseable
+{
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private long version;
+    private long tick;
+    private int size;
+    private double boundsX;
+    private double boundsY;
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] direction = new double[0];
+    private double[] targetX = new double[0];
+    private double[] targetY = new double[0];
+
+    WorldSnapshot()
+    {
+    }
+
+    /*
+     * Заполнение кадра. Вызывается только для кадра, который не виден читателям: сначала копируется весь парк
+     * (copyAll) или только изменившиеся слоты (copySlots), затем complete записывает номер публикации,
+     * шаг и границы.
+     */
+
+    /**
+     * Копирует в кадр состояние всех роботов парка.
+     * @param fleet парк роботов
+     */
+    void copyAll(RobotFleet fleet)
+    {
+        ensureCapacity(fleet.size());
+        fleet.copyTo(x, y, direction, targetX, targetY);
+    }
+
+    /**
+     * Копирует в кадр состояние указанных роботов; остальные слоты кадра не меняются.
+     * @param fleet парк роботов
+     * @param slots номера слотов
+     * @param count число слотов
+     */
+    void copySlots(RobotFleet fleet, int[] slots, int count)
+    {
+        ensureCapacity(fleet.size());
+        for (int k = 0; k < count; k++)
+        {
+            final int slot = slots[k];
+            x[slot] = fleet.getX(slot);
+            y[slot] = fleet.getY(slot);
+            direction[slot] = fleet.getDirection(slot);
+            targetX[slot] = fleet.getTargetX(slot);
+            targetY[slot] = fleet.getTargetY(slot);
+        }
+    }
+
+    /**
+     * Завершает заполнение кадра.
+     * @param newVersion номер публикации кадра в {@link WorldSnapshotBuffer}
+     * @param newTick номер шага
+     * @param newSize число роботов
+     * @param newBoundsX ширина области движения
+     * @param newBoundsY высота области движения
+     */
+    void complete(long newVersion, long newTick, int newSize, double newBoundsX, double newBoundsY)
+    {
+        version = newVersion;
+        tick = newTick;
+        size = newSize;
+        boundsX = newBoundsX;
+        boundsY = newBoundsY;
+    }
+
+    /**
+     * Возвращает номер публикации, с которой кадр был заполнен последний раз.
+     * @return номер публикации или 0, если кадр еще не заполнялся
+     */
+    long getVersion()
+    {
+        return version;
+    }
+
+    private void ensureCapacity(int newSize)
+    {
+        if (x.length < newSize)
+        {
+            x = Arrays.copyOf(x, newSize);
+            y = Arrays.copyOf(y, newSize);
+            direction = Arrays.copyOf(direction, newSize);
+            targetX = Arrays.copyOf(targetX, newSize);
+            targetY = Arrays.copyOf(targetY, newSize);
+        }
+    }
+
+    /**
+     * Занимает кадр для чтения.
+     */
+    void retain()
+    {
+        readers.incrementAndGet();
+    }
+
+    /**
+     * Проверяет, что кадр не занят ни одним читателем.
+     * @return true, если кадр свободен
+     */
+    boolean isFree()
+    {
+        return readers.get() == 0;
+    }
+
+    /**
+     * Освобождает кадр. После закрытия читать кадр нельзя.
+     */
+    @Override
+    public void close()
+    {
+        readers.decrementAndGet();
+    }
+
+    /**
+     * Возвращает номер шага, после которого снят кадр.
+     * @return номер шага
+     */
+    public long getTick()
+    {
+        return tick;
+    }
+
+    /**
+     * Возвращает число роботов в кадре.
+     * @return число роботов
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Возвращает ширину области движения.
+     * @return ширина
+     */
+    public double getBoundsX()
+    {
+        return boundsX;
+    }
+
+    /**
+     * Возвращает высоту области движения.
+     * @return высота
+     */
+    public double getBoundsY()
+    {
+        return boundsY;
+    }
+
+    /**
+     * Возвращает координату x робота.
+     * @param slot номер слота
+     * @return координата x
+     */
+    public double getX(int slot)
+    {
+        return x[slot];
+    }
+
+    /**
+     * Возвращает координату y робота.
+     * @param slot номер слота
+     * @return координата y
+     */
+    public double getY(int slot)
+    {
+        return y[slot];
+    }
+
+    /**
+     * Возвращает направление движения робота.
+     * @param slot номер слота
+     * @return направление в радианах
+     */
+    public double getDirection(int slot)
+    {
+        return direction[slot];
+    }
+
+    /**
+     * Возвращает координату x цели робота.
+     * @param slot номер слота
+     * @return координата x цели
+     */
+    public double getTargetX(int slot)
+    {
+        return targetX[slot];
+    }
+
+    /**
+     * Возвращает координату y цели робота.
+     * @param slot номер слота
+     * @return координата y цели
+     */
+    public double getTargetY(int slot)
+    {
+        return targetY[slot];
+    }
+}
@@ -0,0 +1,157 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Публикует кадры состояния мира без блокировки потока симуляции.
+ * <p>
+ * Поток симуляции заполняет свободный кадр и атомарно делает его текущим. Читатели занимают текущий кадр
+ * счетчиком ссылок и освобождают его закрытием. Кадры переиспользуются: для перезаписи берется только кадр,
+ * который не является текущим и не занят ни одним читателем. Если все кадры заняты, создается новый,
+ * поэтому медленные читатели не задерживают симуляцию, а в обычном режиме шаг не создает объектов.
+ * <p>
+ * <p>
+ * Кадр не копирует весь парк заново: буфер хранит списки слотов, изменившихся за последние {@link #HISTORY}
+ * публикаций ({@link RobotFleet#changedSlots()}), и переносит в перезаписываемый кадр только слоты, изменившиеся
+ * с его прошлого заполнения. Весь парк копируется в новый кадр, в кадр, который читатель держал дольше
+ * {@link #HISTORY} публикаций, и после замены всего парка ({@link RobotFleet#isAllChanged()}).
+ * <p>
+ * Метод {@link #publish} должен вызываться из одного потока; {@link #acquire()} можно вызывать из любого числа потоков.
+ * Публикация забирает у парка список изменившихся слотов ({@link RobotFleet#clearChanged()}), поэтому кадры
+ * одного парка должен публиковать один буфер.
+ */
+public class WorldSnapshotBuffer
+{
+    static final int HISTORY = 8;
+
+    private final List<WorldSnapshot> frames = new ArrayList<>();
+    private final int[][] changedSlots = new int[HISTORY][];
+    private final int[] changedCount = new int[HISTORY];
+    private final boolean[] allChanged = new boolean[HISTORY];
+    private volatile WorldSnapshot current;
+    private volatile long version;
+
+    /**
+     * Создает буфер с пустым текущим кадром.
+     */
+    public WorldSnapshotBuffer()
+    {
+        current = new WorldSnapshot();
+        frames.add(current);
+        for (int i = 0; i < HISTORY; i++)
+        {
+            changedSlots[i] = new int[0];
+        }
+    }
+
+    /**
+     * Снимает кадр с парка роботов и делает его текущим.
+     * @param tick номер шага
+     * @param fleet парк роботов
+     * @param boundsX ширина области движения
+     * @param boundsY высота области движения
+     */
+    public void publish(long tick, RobotFleet fleet, double boundsX, double boundsY)
+    {
+        final long newVersion = version + 1;
+        recordChanges(newVersion, fleet);
+        final WorldSnapshot frame = freeFrame();
+        final long filled = frame.getVersion();
+        boolean all = filled == 0 || newVersion - filled > HISTORY || frame.size() > fleet.size();
+        for (long v = filled + 1; v <= newVersion && !all; v++)
+        {
+            all = allChanged[(int) (v % HISTORY)];
+        }
+        if (all)
+        {
+            frame.copyAll(fleet);
+        } else
+        {
+            for (long v = filled + 1; v <= newVersion; v++)
+            {
+                final int entry = (int) (v % HISTORY);
+                frame.copySlots(fleet, changedSlots[entry], changedCount[entry]);
+            }
+        }
+        frame.complete(newVersion, tick, fleet.size(), boundsX, boundsY);
+        current = frame;
+        version = newVersion;
+    }
+
+    /**
+     * Запоминает слоты, изменившиеся с прошлой публикации, и очищает их список в парке.
+     */
+    private void recordChanges(long newVersion, RobotFleet fleet)
+    {
+        final int entry = (int) (newVersion % HISTORY);
+        final int count = fleet.getChangedCount();
+        allChanged[entry] = fleet.isAllChanged();
+        if (changedSlots[entry].length < count)
+        {
+            changedSlots[entry] = Arrays.copyOf(fleet.changedSlots(), Math.max(count, 2 * changedSlots[entry].length));
+        } else
+        {
+            System.arraycopy(fleet.changedSlots(), 0, changedSlots[entry], 0, count);
+        }
+        changedCount[entry] = count;
+        fleet.clearChanged();
+    }
+
+    /**
+     * Возвращает номер последней публикации. Номер растет с каждым вызовом {@link #publish}.
+     * @return номер публикации
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Занимает текущий кадр для чтения. Кадр нужно закрыть после использования.
+     * @return текущий кадр
+     */
+    public WorldSnapshot acquire()
+    {
+        while (true)
+        {
+            final WorldSnapshot frame = current;
+            frame.retain();
+            if (frame == current)
+            {
+                return frame;
+            }
+            frame.close();
+        }
+    }
+
+    /**
+     * Возвращает число кадров, созданных буфером.
+     * @return число кадров
+     */
+    public int frameCount()
+    {
+        return frames.size();
+    }
+
+    /**
+     * Находит кадр, который можно перезаписать, или создает новый.
+     * @return свободный кадр
+     */
+    private WorldSnapshot freeFrame()
+    {
+        final WorldSnapshot published = current;
+        for (int i = 0, n = frames.size(); i < n; i++)
+        {
+            final WorldSnapshot frame = frames.get(i);
+            if (frame != published && frame.isFree())
+            {
+                return frame;
+            }
+        }
+        final WorldSnapshot frame = new WorldSnapshot();
+        frames.add(frame);
+        return frame;
+    }
+}
@@ -0,0 +1,122 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import log.LogLevel;
+import log.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Проверяет, что шаг симуляции после прогрева не создает объектов. Выделенная память считается
+ * по {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ */
+class TickAllocationTest
+{
+    private static final int ROBOTS = 1000;
+    private static final int WARM_UP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 2_000;
+    private static final double FAR = 1e7;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private LogLevel previousLevel;
+
+    @BeforeEach
+    void setUp()
+    {
+        assertTrue(threads.isThreadAllocatedMemorySupported(), "allocation counters are not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // Сообщения отладки на шаге строятся, только если уровень включен; проверяется путь без них
+        previousLevel = Logger.getDefaultLogSource().getMinimumLevel();
+        Logger.getDefaultLogSource().setMinimumLevel(LogLevel.Info);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        Logger.getDefaultLogSource().setMinimumLevel(previousLevel);
+    }
+
+    @Test
+    void tickDoesNotAllocate()
+    {
+        final RobotsLogic logic = createLogic();
+        for (int i = 0; i < WARM_UP_TICKS; i++)
+        {
+            logic.tick();
+        }
+        final long thread = Thread.currentThread().getId();
+        final long overhead = -threads.getThreadAllocatedBytes(thread) + threads.getThreadAllocatedBytes(thread);
+        final long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_TICKS; i++)
+        {
+            logic.tick();
+        }
+        final long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+        assertEquals(0, allocated, "bytes allocated by " + MEASURED_TICKS + " ticks");
+    }
+
+    @Test
+    void schedulerLoopDoesNotAllocate() throws InterruptedException
+    {
+        final RobotsLogic logic = createLogic();
+        // Период в одну наносекунду держит планировщик в постоянном отставании: каждый проход цикла
+        // выполняет догоняющие шаги и учитывает пропущенные
+        final SimulationScheduler scheduler =
+                new SimulationScheduler("allocation test", logic::tick, 1, RobotsLogic.MAX_CATCH_UP_TICKS);
+        scheduler.start();
+        try
+        {
+            final Thread thread = findThread("allocation test");
+            while (scheduler.getTickCount() < WARM_UP_TICKS)
+            {
+                Thread.sleep(10);
+            }
+            final long ticksBefore = scheduler.getTickCount();
+            final long before = threads.getThreadAllocatedBytes(thread.getId());
+            while (scheduler.getTickCount() < ticksBefore + MEASURED_TICKS)
+            {
+                Thread.sleep(10);
+            }
+            final long allocated = threads.getThreadAllocatedBytes(thread.getId()) - before;
+            assertTrue(scheduler.getSkippedTicks() > 0, "scheduler never fell behind");
+            assertEquals(0, allocated, "bytes allocated by the simulation thread");
+        } finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * Создает логику с парком роботов, цели которых недостижимы, чтобы все роботы двигались на каждом шаге.
+     */
+    private static RobotsLogic createLogic()
+    {
+        final RobotFleet fleet = new RobotFleet(ROBOTS);
+        for (int i = 0; i < ROBOTS; i++)
+        {
+            final int slot = fleet.addRobot(i % 300, (i * 7) % 300, i * 0.01);
+            fleet.setTarget(slot, FAR, FAR);
+        }
+        final RobotsLogic logic = new RobotsLogic(fleet);
+        logic.enableSpatialIndex(20);
+        return logic;
+    }
+
+    private static Thread findThread(String name)
+    {
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            if (name.equals(thread.getName()))
+            {
+                return thread;
+            }
+        }
+        throw new AssertionError("thread not found: " + name);
+    }
+}
@@ -0,0 +1,192 @@
+package model;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Ядро шага на {@code jdk.incubator.vector}: обрабатывает сразу {@link #SPECIES}{@code .length()} роботов.
+ * <p>
+ * Столбцы состояния читаются и записываются по номерам слотов из активного множества (gather и scatter).
+ * Шаг выполняется в три прохода по части: первый вычисляет расстояния до целей и углы на цели, второй поштучно
+ * обрабатывает роботов, подошедших к цели (у них меняется цель или они отмечаются как стоящие), третий двигает
+ * остальных. Промежуточные значения лежат в рабочих массивах потока: если держать весь шаг в одном методе,
+ * JIT перестает встраивать операции над векторами и создает для них объекты. Обе ветви движения — прямо
+ * и по дуге — вычисляются для всех роботов вектора, а нужная выбирается маской. Неполный последний вектор
+ * дополняется последним слотом части; лишние элементы вычисляют и записывают те же значения для того же слота.
+ * Если у робота направление дальше одного оборота от [0, 2π), его вектор обрабатывается поштучно.
+ * <p>
+ * Все операции повторяют обычный шаг в том же порядке, поэтому без векторной математики результат побитово
+ * совпадает с {@link StepKernel#SCALAR}. В скомпилированном коде синус, косинус и арктангенс берутся
+ * из векторной библиотеки JVM и могут отличаться от {@link Math} в последних битах, а до компиляции
+ * вычисляются через {@link Math}; поэтому побитовое совпадение с обычным шагом и между разными разбиениями
+ * на части не гарантируется.
+ */
+final class VectorStepKernel implements StepKernel
+{
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double TAU = 2 * Math.PI;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    @Override
+    public boolean isVectorized()
+    {
+        return true;
+    }
+
+    @Override
+    public void step(RobotFleet fleet, int from, int to, double deltaTime, double boundsX, double boundsY)
+    {
+        if (from >= to)
+        {
+            return;
+        }
+        final int count = to - from;
+        final int lanes = SPECIES.length();
+        final int padded = (count + lanes - 1) / lanes * lanes;
+        final Scratch work = scratch.get();
+        work.ensureCapacity(padded);
+        final int[] active = fleet.activeSlots();
+        final int[] slots = work.slots;
+        System.arraycopy(active, from, slots, 0, count);
+        Arrays.fill(slots, count, padded, active[to - 1]);
+
+        aim(fleet, slots, padded, work.distance, work.heading);
+        final boolean[] settled = fleet.settledFlags();
+        for (int i = 0; i < count; i++)
+        {
+            boolean stays = false;
+            if (work.distance[i] < RobotFleet.TARGET_CLOSE_ENOUGH)
+            {
+                if (fleet.getWaypointCount(slots[i]) > 0)
+                {
+                    fleet.advanceWaypoint(slots[i]);
+                } else
+                {
+                    stays = true;
+                }
+            }
+            settled[from + i] = stays;
+        }
+        move(fleet, slots, count, padded, work.distance, work.heading, deltaTime, boundsX, boundsY);
+    }
+
+    /**
+     * Вычисляет для каждого робота расстояние до цели и угол на цель.
+     */
+    private static void aim(RobotFleet fleet, int[] slots, int padded, double[] distance, double[] heading)
+    {
+        final double[] x = fleet.xColumn();
+        final double[] y = fleet.yColumn();
+        final double[] targetX = fleet.targetXColumn();
+        final double[] targetY = fleet.targetYColumn();
+        for (int i = 0; i < padded; i += SPECIES.length())
+        {
+            final DoubleVector px = DoubleVector.fromArray(SPECIES, x, 0, slots, i);
+            final DoubleVector py = DoubleVector.fromArray(SPECIES, y, 0, slots, i);
+            final DoubleVector distX = DoubleVector.fromArray(SPECIES, targetX, 0, slots, i).sub(px);
+            final DoubleVector distY = DoubleVector.fromArray(SPECIES, targetY, 0, slots, i).sub(py);
+            distX.mul(distX).add(distY.mul(distY)).lanewise(VectorOperators.SQRT).intoArray(distance, i);
+            // Угол на цель лежит в [-π, π], поэтому отрицательные углы достаточно сдвинуть на один оборот
+            final DoubleVector angle = distY.lanewise(VectorOperators.ATAN2, distX);
+            angle.blend(DoubleVector.broadcast(SPECIES, TAU).sub(angle.neg()), angle.compare(VectorOperators.LT, 0))
+                    .intoArray(heading, i);
+        }
+    }
+
+    /**
+     * Двигает роботов, которые не подошли к цели. Роботы у цели получают свои прежние значения,
+     * поэтому векторы записываются целиком без маски.
+     */
+    private static void move(RobotFleet fleet, int[] slots, int count, int padded, double[] distance,
+                             double[] heading, double deltaTime, double boundsX, double boundsY)
+    {
+        final double[] x = fleet.xColumn();
+        final double[] y = fleet.yColumn();
+        final double[] direction = fleet.directionColumn();
+        final double[] angularVelocity = fleet.angularVelocityColumn();
+        final int lanes = SPECIES.length();
+        for (int i = 0; i < padded; i += lanes)
+        {
+            final VectorMask<Double> close = DoubleVector.fromArray(SPECIES, distance, i)
+                    .compare(VectorOperators.LT, RobotFleet.TARGET_CLOSE_ENOUGH);
+            if (close.allTrue())
+            {
+                continue;
+            }
+            final DoubleVector dir = DoubleVector.fromArray(SPECIES, direction, 0, slots, i);
+            final DoubleVector omega = DoubleVector.fromArray(SPECIES, angularVelocity, 0, slots, i);
+            final DoubleVector turned = dir.add(omega.mul(deltaTime));
+            if (turned.compare(VectorOperators.LE, -TAU).or(turned.compare(VectorOperators.GE, 2 * TAU)).anyTrue())
+            {
+                moveScalar(fleet, slots, i, Math.min(count, i + lanes), distance, deltaTime, boundsX, boundsY);
+                continue;
+            }
+            final DoubleVector px = DoubleVector.fromArray(SPECIES, x, 0, slots, i);
+            final DoubleVector py = DoubleVector.fromArray(SPECIES, y, 0, slots, i);
+            final VectorMask<Double> straight = omega.abs().compare(VectorOperators.LT, RobotFleet.ANGULAR_VELOCITY)
+                    .or(dir.sub(DoubleVector.fromArray(SPECIES, heading, i)).abs()
+                            .compare(VectorOperators.LT, RobotFleet.EPSILON));
+
+            final DoubleVector sinDir = dir.lanewise(VectorOperators.SIN);
+            final DoubleVector cosDir = dir.lanewise(VectorOperators.COS);
+            final DoubleVector newAngle = turned
+                    .blend(DoubleVector.broadcast(SPECIES, TAU).sub(turned.neg()), turned.compare(VectorOperators.LT, 0))
+                    .blend(turned.sub(TAU), turned.compare(VectorOperators.GE, TAU));
+            final DoubleVector radius = DoubleVector.broadcast(SPECIES, RobotFleet.SPEED).div(omega);
+            final DoubleVector dx = radius.mul(newAngle.lanewise(VectorOperators.SIN).sub(sinDir));
+            final DoubleVector dy = radius.mul(newAngle.lanewise(VectorOperators.COS).sub(cosDir));
+            // Коэффициент скорости у границ, как в RobotsMath.speedFactor
+            final DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+            final DoubleVector offsetX = DoubleVector.broadcast(SPECIES, boundsX).sub(px).div(boundsX).sub(0.5);
+            final DoubleVector offsetY = DoubleVector.broadcast(SPECIES, boundsY).sub(py).div(boundsY).sub(0.5);
+            final DoubleVector arcX = px.add(dx.mul(one.sub(offsetX.abs().mul(2)).max(0.01)));
+            final DoubleVector arcY = py.add(dy.neg().mul(one.sub(offsetY.abs().mul(2)).max(0.01)));
+
+            arcX.blend(px.add(cosDir.mul(RobotFleet.SPEED).mul(deltaTime)), straight).blend(px, close)
+                    .intoArray(x, 0, slots, i);
+            arcY.blend(py.add(sinDir.mul(RobotFleet.SPEED).mul(deltaTime)), straight).blend(py, close)
+                    .intoArray(y, 0, slots, i);
+            newAngle.blend(dir, straight).blend(dir, close).intoArray(direction, 0, slots, i);
+        }
+    }
+
+    /**
+     * Двигает поштучно роботов с позициями {@code [start, end)}, которые не подошли к цели.
+     */
+    private static void moveScalar(RobotFleet fleet, int[] slots, int start, int end, double[] distance,
+                                   double deltaTime, double boundsX, double boundsY)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!(distance[i] < RobotFleet.TARGET_CLOSE_ENOUGH))
+            {
+                fleet.stepRobot(slots[i], deltaTime, boundsX, boundsY);
+            }
+        }
+    }
+
+    /**
+     * Рабочие массивы одного потока.
+     */
+    private static final class Scratch
+    {
+        private int[] slots = new int[0];
+        private double[] distance = new double[0];
+        private double[] heading = new double[0];
+
+        private void ensureCapacity(int capacity)
+        {
+            if (slots.length < capacity)
+            {
+                slots = new int[capacity];
+                distance = new double[capacity];
+                heading = new double[capacity];
+            }
+        }
+    }
+}